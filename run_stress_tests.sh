@@ -0,0 +1,159 @@
+#!/bin/bash
+
+# Stress tests for inputs that are too large to keep in the repository.
+# Each test generates its input in a temporary directory, runs the compiler
+# with a deliberately small thread stack and checks the reported result.
+
+GREEN="\033[0;32m"
+RED="\033[0;31m"
+YELLOW="\033[0;33m"
+CYAN="\033[0;36m"
+NC="\033[0m"
+
+BUILD_DIR="bin"
+STACK_SIZE="-Xss256k"
+WORK_DIR=$(mktemp -d)
+trap 'rm -rf "$WORK_DIR"' EXIT
+
+PASSED_TESTS=()
+FAILED_TESTS=()
+
+display_header() {
+  echo -e "${CYAN}"
+  echo "======================================"
+  echo "      JAVA COMPILER STRESS TESTS      "
+  echo "======================================"
+  echo -e "${NC}"
+}
+
+run_ant_build() {
+  echo -e "${CYAN}Running Ant build...${NC}"
+  ant build
+  if [ $? -ne 0 ]; then
+    echo -e "${RED}Ant build failed. Exiting.${NC}"
+    exit 1
+  fi
+}
+
+# check_output name expected-last-line command...
+check_output() {
+  local name=$1
+  local expected=$2
+  shift 2
+  echo -e "${YELLOW}Running stress test: $name${NC}"
+  local result
+  result=$("$@" 2>&1 | tail -n 1)
+  if [ "$result" == "$expected" ]; then
+    echo -e "${GREEN}Test passed: $name${NC}"
+    PASSED_TESTS+=("$name")
+  else
+    echo -e "${RED}Test failed: $name (got: $result)${NC}"
+    FAILED_TESTS+=("$name")
+  fi
+}
+
+# megabytes of blank lines, indentation and comments around a few tokens
+lexer_whitespace_and_comments() {
+  local file="$WORK_DIR/whitespace.c"
+  awk 'BEGIN {
+    print "int main() {";
+    for (i = 0; i < 200000; i++) {
+      print "";
+      print "        \t  ";
+      print "  // line comment " i;
+      print "  /* block */ /* comment */";
+    }
+    print "  return 0;";
+    print "}";
+  }' > "$file"
+  check_output "lexer: whitespace and comments" "Lexing: pass" \
+    java $STACK_SIZE -cp "$BUILD_DIR" Main4 -lexer "$file"
+}
+
+# a hundred thousand functions with a syntax error each: the parser resynchronises after every
+# error, reports no follow-on errors, and gives up after Parser.MAX_ERRORS
+parser_error_cascade() {
+  local file="$WORK_DIR/broken.c"
+  awk 'BEGIN {
+    for (i = 0; i < 100000; i++) {
+      print "int f" i "(int a) {";
+      print "  a = a + ;";
+      print "  if (a > ) { a = 1; }";
+      print "  return a;";
+      print "}";
+    }
+  }' > "$file"
+  check_output "parser: error cascade" "Parsing: failed (100 errors)" \
+    java $STACK_SIZE -cp "$BUILD_DIR" Main4 -parser "$file"
+}
+
+# a hundred thousand levels of nested blocks, if/else and while statements: the parser keeps the
+# enclosing statements on an explicit stack instead of recursing once per level
+parser_nested_statements() {
+  local file="$WORK_DIR/statements.c"
+  awk 'BEGIN {
+    n = 100000;
+    print "int main() {";
+    print "  int x;";
+    for (i = 0; i < n; i++) {
+      if (i % 3 == 0) printf "{ ";
+      else if (i % 3 == 1) printf "if (x) ";
+      else printf "while (x < %d) ", i;
+    }
+    printf "x = 1;";
+    for (i = n - 1; i >= 0; i--) {
+      if (i % 3 == 0) printf " }";
+      else if (i % 3 == 1) printf " else x = 2;";
+    }
+    print "";
+    print "  return x;";
+    print "}";
+  }' > "$file"
+  check_output "parser: nested statements" "Parsing: pass" \
+    java $STACK_SIZE -cp "$BUILD_DIR" Main4 -parser "$file"
+}
+
+# a hundred thousand levels of parentheses, unary operators, casts, calls, array indices and
+# assignments, parsed with an explicit stack as well
+parser_nested_expressions() {
+  local file="$WORK_DIR/expressions.c"
+  awk 'BEGIN {
+    n = 100000;
+    split("1 + (,- ,*,(int*),f(,a[,&", opening, ",");
+    split("),,,,),],", closing, ",");
+    print "int main() {";
+    printf "  return ";
+    for (i = 0; i < n; i++) printf "%s", opening[i % 7 + 1];
+    printf "x";
+    for (i = n - 1; i >= 0; i--) printf "%s", closing[i % 7 + 1];
+    print ";";
+    printf "  x";
+    for (i = 0; i < n; i++) printf " = x";
+    print ";";
+    print "}";
+  }' > "$file"
+  check_output "parser: nested expressions" "Parsing: pass" \
+    java $STACK_SIZE -cp "$BUILD_DIR" Main4 -parser "$file"
+}
+
+display_results() {
+  echo -e "${CYAN}================= STRESS RESULTS =================${NC}"
+  echo -e "${GREEN}Passed Tests: ${#PASSED_TESTS[@]}${NC}"
+  echo -e "${RED}Failed Tests: ${#FAILED_TESTS[@]}${NC}"
+  for name in "${FAILED_TESTS[@]}"; do
+    echo -e "  - ${RED}$name${NC}"
+  done
+  [ ${#FAILED_TESTS[@]} -eq 0 ]
+}
+
+main() {
+  display_header
+  run_ant_build
+  lexer_whitespace_and_comments
+  parser_error_cascade
+  parser_nested_statements
+  parser_nested_expressions
+  display_results
+}
+
+main
@@ -14,6 +14,13 @@ TEST_LEXER_DIR="$SRC_DIR/tests/test/new_test"
 TEST_AST_DIR="$SRC_DIR/tests/test/new_test"
 TEST_SEMANTIC_DIR="$SRC_DIR/tests/test/new_test"
 TEST_CODEGEN_DIR="$SRC_DIR/tests/test/OO_test"
+TEST_SERIALIZER_DIR="$SRC_DIR/tests/test/test_ast"
+TEST_LEXER_ENGINE_DIR="$SRC_DIR/tests/test/test_Lexing"
+TEST_SEM_EXPECT_DIR="$SRC_DIR/tests/test/test_sem"
+TEST_INCLUDE_DIR="$SRC_DIR/tests/test/test_include"
+TEST_CROSS_CHECK_DIRS="$SRC_DIR/tests/test/test_parser $SRC_DIR/tests/test/test_sem $SRC_DIR/tests/test/test_codegen $SRC_DIR/tests/test/OO_test"
+TEST_PARSER_CHECK_DIRS="$SRC_DIR/tests/test/test_parser $SRC_DIR/tests/test/test_sem $SRC_DIR/tests/test/test_codegen $SRC_DIR/tests/test/OO_test"
+TEST_PARALLEL_SEM_DIRS="$SRC_DIR/tests/test/test_parser $SRC_DIR/tests/test/test_sem $SRC_DIR/tests/test/test_codegen $SRC_DIR/tests/test/OO_test"
 CODEGEN_OUTPUT_DIR="./description/part3"
 MARS_JAR="./description/part3/Mars4_5.jar"
 
@@ -76,6 +83,145 @@ run_tests() {
   done
 }
 
+# Write each program in binary form, read it back and compare the printed ASTs
+run_serializer_round_trip() {
+  local dir=$1
+  echo -e "${YELLOW}Running AST serializer round trip on: $dir${NC}"
+  java -cp "$BUILD_DIR" ast.AstSerializerCheck "$dir"/*.c
+  if [ $? -ne 0 ]; then
+    echo -e "${RED}AST serializer round trip failed${NC}"
+  else
+    echo -e "${GREEN}AST serializer round trip passed${NC}"
+  fi
+}
+
+# Compare the table-driven lexer engine with the direct one
+run_lexer_engine_check() {
+  local dir=$1
+  echo -e "${YELLOW}Running lexer engine check on: $dir${NC}"
+  java -cp "$BUILD_DIR" lexer.LexerEngineCheck "$dir"/*.c "$dir"/*.h
+  if [ $? -ne 0 ]; then
+    echo -e "${RED}Lexer engine check failed${NC}"
+  else
+    echo -e "${GREEN}Lexer engine check passed${NC}"
+  fi
+}
+
+# Lex each file with ParallelLexer split into small chunks, it must match the sequential Tokeniser
+run_parallel_lexer_check() {
+  local dir=$1
+  echo -e "${YELLOW}Running parallel lexer check on: $dir${NC}"
+  java -cp "$BUILD_DIR" lexer.ParallelLexerCheck "$dir"/*.c "$dir"/*.h
+  if [ $? -ne 0 ]; then
+    echo -e "${RED}Parallel lexer check failed${NC}"
+  else
+    echo -e "${GREEN}Parallel lexer check passed${NC}"
+  fi
+}
+
+# Parse each file on a worker pool in groups of a few tokens, it must match the sequential Parser
+run_parallel_parser_check() {
+  echo -e "${YELLOW}Running parallel parser check on: $*${NC}"
+  local files=()
+  for dir in "$@"; do
+    files+=("$dir"/*.c)
+  done
+  java -cp "$BUILD_DIR" parser.ParallelParserCheck "${files[@]}"
+  if [ $? -ne 0 ]; then
+    echo -e "${RED}Parallel parser check failed${NC}"
+  else
+    echo -e "${GREEN}Parallel parser check passed${NC}"
+  fi
+}
+
+# Edit each file at random places through IncrementalParser, it must match parsing from scratch
+run_incremental_parser_check() {
+  echo -e "${YELLOW}Running incremental parser check on: $*${NC}"
+  local files=()
+  for dir in "$@"; do
+    files+=("$dir"/*.c)
+  done
+  java -cp "$BUILD_DIR" parser.IncrementalParserCheck "${files[@]}"
+  if [ $? -ne 0 ]; then
+    echo -e "${RED}Incremental parser check failed${NC}"
+  else
+    echo -e "${GREEN}Incremental parser check passed${NC}"
+  fi
+}
+
+# Parse with the includes resolved: pass_*.c must parse, fail_*.c must not, and each header must
+# be lexed once and then taken from the header cache
+run_include_check() {
+  local dir=$1
+  echo -e "${YELLOW}Running include check on: $dir${NC}"
+  local failed=0
+  for file in "$dir"/pass_*.c "$dir"/fail_*.c; do
+    [ -f "$file" ] || continue
+    java -cp "$BUILD_DIR" parser.IncludeCheck "$file"
+    local status=$?
+    case $(basename "$file") in
+      pass_*) [ $status -eq 0 ] || { echo -e "${RED}Expected to parse: $file${NC}"; failed=1; } ;;
+      fail_*) [ $status -eq 2 ] || { echo -e "${RED}Expected parsing errors: $file${NC}"; failed=1; } ;;
+    esac
+  done
+  if [ $failed -ne 0 ]; then
+    echo -e "${RED}Include check failed${NC}"
+  else
+    echo -e "${GREEN}Include check passed${NC}"
+  fi
+}
+
+# Compare the fused semantic pass with the name and type analyzers run one after the other
+run_semantic_cross_check() {
+  echo -e "${YELLOW}Running semantic cross-check on: $*${NC}"
+  local files=()
+  for dir in "$@"; do
+    files+=("$dir"/*.c)
+  done
+  java -cp "$BUILD_DIR" sem.SemanticCheck "${files[@]}"
+  if [ $? -ne 0 ]; then
+    echo -e "${RED}Semantic cross-check failed${NC}"
+  else
+    echo -e "${GREEN}Semantic cross-check passed${NC}"
+  fi
+}
+
+# Compare the type analyzer checking function bodies in parallel with the sequential one
+run_parallel_semantic_check() {
+  echo -e "${YELLOW}Running parallel semantic check on: $*${NC}"
+  local files=()
+  for dir in "$@"; do
+    files+=("$dir"/*.c)
+  done
+  java -cp "$BUILD_DIR" sem.SemanticCheck -parallel "${files[@]}"
+  if [ $? -ne 0 ]; then
+    echo -e "${RED}Parallel semantic check failed${NC}"
+  else
+    echo -e "${GREEN}Parallel semantic check passed${NC}"
+  fi
+}
+
+# Programs named pass_*.c must pass semantic analysis, those named fail_*.c must fail it
+run_semantic_expectations() {
+  local dir=$1
+  echo -e "${YELLOW}Checking semantic analysis results in: $dir${NC}"
+  local failed=0
+  for file in "$dir"/pass_*.c "$dir"/fail_*.c; do
+    [ -f "$file" ] || continue
+    java -cp "$BUILD_DIR" Main4 -sem "$file" > /dev/null
+    local status=$?
+    case $(basename "$file") in
+      pass_*) [ $status -eq 0 ] || { echo -e "${RED}Expected to pass: $file${NC}"; failed=1; } ;;
+      fail_*) [ $status -eq 240 ] || { echo -e "${RED}Expected to fail: $file${NC}"; failed=1; } ;;
+    esac
+  done
+  if [ $failed -ne 0 ]; then
+    echo -e "${RED}Semantic expectations failed${NC}"
+  else
+    echo -e "${GREEN}Semantic expectations passed${NC}"
+  fi
+}
+
 # Run all .ast files through MARS simulator
 run_mars_simulation() {
   echo -e "${YELLOW}Running MARS Simulator on all .ast files...${NC}"
@@ -116,6 +262,15 @@ main() {
   #run_tests "$TEST_AST_DIR" "ast"
   #run_tests "$TEST_SEMANTIC_DIR" "sem"
   #run_tests "$TEST_CODEGEN_DIR" "gen"
+  run_lexer_engine_check "$TEST_LEXER_ENGINE_DIR"
+  run_parallel_lexer_check "$TEST_LEXER_ENGINE_DIR"
+  run_serializer_round_trip "$TEST_SERIALIZER_DIR"
+  run_include_check "$TEST_INCLUDE_DIR"
+  run_parallel_parser_check $TEST_PARSER_CHECK_DIRS
+  run_incremental_parser_check $TEST_PARSER_CHECK_DIRS
+  run_semantic_cross_check $TEST_CROSS_CHECK_DIRS
+  run_parallel_semantic_check $TEST_PARALLEL_SEM_DIRS
+  run_semantic_expectations "$TEST_SEM_EXPECT_DIR"
 
   # Run MARS on all .ast files
   #run_mars_simulation
@@ -6,6 +6,7 @@ import gen.asm.AssemblyPass;
 import gen.asm.AssemblyProgram;
 import lexer.Scanner;
 import lexer.Token;
+import lexer.TokenStream;
 import lexer.Tokeniser;
 import parser.Parser;
 import regalloc.GraphColouringRegAlloc;
@@ -40,12 +41,31 @@ public class Main4 {
 
 
     private static void usage() {
-        System.out.println("Usage: java "+ Main4.class.getSimpleName()+" pass inputfile [outputfile]");
+        System.out.println("Usage: java "+ Main4.class.getSimpleName()+" [-includes] [-semantics fused|two-pass|two-pass-parallel|cross-check] pass inputfile [outputfile]");
         System.out.println("where pass is either: -lexer, -parser, -ast, -sem, -gen [naive|colour], -regalloc naive|colour");
         System.out.println("if -ast, -gen or -regalloc is chosen, the output file must be specified");
+        System.out.println("if -lexer is given an output file, the tokens are also written to it in binary form");
+        System.out.println("-semantics selects how -sem and -gen analyse the program, fused by default");
+        System.out.println("-includes makes the passes from -parser on read the headers of #include \"file\" directives");
         System.exit(-1);
     }
 
+    private static SemanticAnalyzer.Mode semanticMode(String name) {
+        switch (name) {
+            case "fused":
+                return SemanticAnalyzer.Mode.FUSED;
+            case "two-pass":
+                return SemanticAnalyzer.Mode.TWO_PASS;
+            case "two-pass-parallel":
+                return SemanticAnalyzer.Mode.TWO_PASS_PARALLEL;
+            case "cross-check":
+                return SemanticAnalyzer.Mode.CROSS_CHECK;
+            default:
+                usage();
+                return null;
+        }
+    }
+
     private static void ensureArgExists(String[] args, int num) {
         if (num >= args.length)
             usage();
@@ -79,11 +99,34 @@ public class Main4 {
 
     public static void compile(String[] args) {
 
-        ensureArgExists(args, 0);
+        int curArgCnt = 0;
+
+        // the options come before the pass
+        SemanticAnalyzer.Mode semanticMode = SemanticAnalyzer.Mode.FUSED;
+        boolean includes = false;
+        boolean options = true;
+        while (options && curArgCnt < args.length) {
+            switch (args[curArgCnt]) {
+                case "-includes":
+                    includes = true;
+                    curArgCnt++;
+                    break;
+                case "-semantics":
+                    curArgCnt++;
+                    ensureArgExists(args, curArgCnt);
+                    semanticMode = semanticMode(args[curArgCnt]);
+                    curArgCnt++;
+                    break;
+                default:
+                    options = false;
+                    break;
+            }
+        }
+
+        ensureArgExists(args, curArgCnt);
 
         Mode mode = null;
         RegAllocMode regAllocMode = RegAllocMode.NONE;
-        int curArgCnt = 0;
         switch (args[curArgCnt]) {
             case "-lexer":
                 mode = Mode.LEXER;
@@ -94,7 +137,7 @@ public class Main4 {
                 curArgCnt++;
                 break;
             case "-ast":
-                if (args.length < 3)
+                if (args.length < curArgCnt + 3)
                     usage();
                 mode = Mode.AST;
                 curArgCnt++;
@@ -147,21 +190,49 @@ public class Main4 {
 
         Tokeniser tokeniser = new Tokeniser(scanner);
         if (mode == Mode.LEXER) {
-            for (Token t = tokeniser.nextToken(); t.category != Token.Category.EOF; t = tokeniser.nextToken())
-                System.out.println(t);
+            // tokens and lexing errors go through one large buffer, flushed once before exiting
+            PrintStream stdout = System.out;
+            PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+            System.setOut(out);
+
+            // an optional output file receives the tokens in the binary TokenStream format
+            TokenStream stream = curArgCnt < args.length ? new TokenStream() : null;
+            int status;
+            try {
+                Token t;
+                for (t = tokeniser.nextToken(); t.category != Token.Category.EOF; t = tokeniser.nextToken()) {
+                    out.println(t);
+                    if (stream != null)
+                        stream.add(t.category, t.data, tokeniser.getTokenOffset(), t.line, t.column);
+                }
 
-            if (tokeniser.hasErrors()) {
-                System.out.println("Lexing: failed (" + tokeniser.getNumErrors() + " errors)");
-                System.exit(LEXER_FAIL);
-                return;
-            }
+                if (tokeniser.hasErrors()) {
+                    out.println("Lexing: failed (" + tokeniser.getNumErrors() + " errors)");
+                    status = LEXER_FAIL;
+                } else {
+                    out.println("Lexing: pass");
+                    status = PASS;
+                }
 
-            System.out.println("Lexing: pass");
-            System.exit(PASS);
+                if (stream != null) {
+                    stream.add(t.category, t.data, tokeniser.getTokenOffset(), t.line, t.column);
+                    try (OutputStream os = new FileOutputStream(args[curArgCnt])) {
+                        stream.write(os);
+                    } catch (IOException e) {
+                        out.println("Cannot write token file " + args[curArgCnt] + ": " + e.getMessage());
+                        status = IO_EXCEPTION;
+                    }
+                }
+            } finally {
+                out.flush();
+                System.setOut(stdout);
+            }
+            System.exit(status);
         }
 
         else if (mode == Mode.PARSER || mode == Mode.AST || mode == Mode.SEMANTICANALYSIS || mode == Mode.GEN) {
-            Parser parser = new Parser(tokeniser);
+            // with -includes, #include "file" directives are resolved next to the input file
+            Parser parser = includes ? new Parser(tokeniser, inputFile) : new Parser(tokeniser);
             Program programAst = parser.parse();
 
             if (tokeniser.hasErrors()) {
@@ -204,7 +275,7 @@ public class Main4 {
 
             assert(mode == Mode.SEMANTICANALYSIS || mode == Mode.GEN);
 
-            SemanticAnalyzer sem = new SemanticAnalyzer();
+            SemanticAnalyzer sem = new SemanticAnalyzer(semanticMode);
             sem.analyze(programAst);
             if (sem.hasErrors()) {
                 System.out.println("Semantic analysis: Failed (" + sem.getNumErrors() + " errors)");
@@ -1,6 +1,7 @@
 package ast;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public sealed interface  ASTNode
         permits Decl, Expr, Program, Stmt, Type {
@@ -9,4 +10,23 @@ public sealed interface  ASTNode
      * Returns all the children of this ASTNode.
      * */
     abstract List<ASTNode> children();
+
+    /**
+     * Returns the number of children, without building the list children() returns.
+     * */
+    int childCount();
+
+    /**
+     * Returns children().get(i), without building the list.
+     * */
+    ASTNode child(int i);
+
+    /**
+     * Calls action on each child in order, without allocating.
+     * */
+    default void forEachChild(Consumer<? super ASTNode> action) {
+        for (int i = 0, n = childCount(); i < n; i++) {
+            action.accept(child(i));
+        }
+    }
 }
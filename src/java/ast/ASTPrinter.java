@@ -22,6 +22,11 @@ public class ASTPrinter {
     indent();
   }
 
+  // as a ClassType of that name is printed, without creating one
+  private void printClassType(String name) {
+    writer.print(ClassType.class.getSimpleName() + "(" + name + ")");
+  }
+
   public void visit(ASTNode node) {
     if (node == null) throw new IllegalStateException("Unexpected null value");
 
@@ -89,9 +94,10 @@ public class ASTPrinter {
           }
 
           case Block blk -> {
-            for (ASTNode child : blk.children()) {
+            for (int i = 0; i < blk.childCount(); i++) {
+              ASTNode child = blk.child(i);
               newline();
-              if (child != blk.children().get(0)) {
+              if (child != blk.child(0)) {
                 writer.print(",");
               }
               // newline();
@@ -146,10 +152,10 @@ public class ASTPrinter {
           // ==== P5 cases ====
           case ClassDecl cd -> {
             // print class name and parent if not null
-            visit(new ClassType(cd.name)); // prints “class Foo”
+            printClassType(cd.name); // prints “class Foo”
             if (cd.parent != null) {
               writer.print(",");
-              visit(new ClassType(cd.parent));
+              printClassType(cd.parent);
             }
 
             // fields
@@ -234,7 +240,8 @@ public class ASTPrinter {
           }
           default -> {
             String delimiter = "";
-            for (ASTNode child : node.children()) {
+            for (int i = 0; i < node.childCount(); i++) {
+              ASTNode child = node.child(i);
               writer.print(delimiter);
               delimiter = ",";
               visit(child);
@@ -253,4 +260,190 @@ public class ASTPrinter {
       default -> {}
     }
   }
+
+  /** Prints a compact AST as visit(ASTNode) prints the program it stores. */
+  public void visit(CompactAst ast) {
+    visit(ast, 0);
+  }
+
+  /**
+   * Prints the subtree of id of a compact AST exactly as visit(ASTNode) prints the same nodes,
+   * reading the arrays of the compact AST instead of rebuilding its AST objects.
+   */
+  public void visit(CompactAst ast, int id) {
+    CompactAst.Kind kind = ast.kind(id);
+    switch (kind) {
+      case NULL -> throw new IllegalStateException("Unexpected null value");
+
+      case BASE_TYPE -> {
+        writer.print(ast.baseType(id).name());
+        return;
+      }
+
+      default -> {
+        indentLevel++;
+        writer.print(kind.nodeClass.getSimpleName() + "(");
+        int first = ast.firstChild(id);
+        switch (kind) {
+          case FUN_DEF -> {
+            visit(ast, first);
+            writer.print("," + ast.string(id));
+            for (int c = ast.nextSibling(id, first); c != -1; c = ast.nextSibling(id, c)) {
+              writer.print(",");
+              newline();
+              visit(ast, c);
+            }
+          }
+
+          case FUN_DECL -> {
+            visit(ast, first);
+            writer.print("," + ast.string(id));
+            newline();
+            for (int c = ast.nextSibling(id, first); c != -1; c = ast.nextSibling(id, c)) {
+              writer.print(",");
+              newline();
+              visit(ast, c);
+            }
+          }
+
+          case VAR_DECL -> {
+            visit(ast, first);
+            writer.print("," + ast.string(id));
+          }
+
+          case VAR_EXPR, STR_LITERAL, CHR_LITERAL, STRUCT_TYPE, CLASS_TYPE, NEW_INSTANCE ->
+              writer.print(ast.string(id));
+
+          case INT_LITERAL -> writer.print(ast.intValue(id));
+
+          case BIN_OP -> {
+            visit(ast, first);
+            writer.print("," + ast.op(id) + ",");
+            visit(ast, ast.nextSibling(id, first));
+          }
+
+          case ASSIGN, INSTANCE_FUN_CALL -> {
+            visit(ast, first);
+            writer.print(",");
+            visit(ast, ast.nextSibling(id, first));
+          }
+
+          case BLOCK -> {
+            for (int c = first; c != -1; c = ast.nextSibling(id, c)) {
+              newline();
+              if (c != first) {
+                writer.print(",");
+              }
+              visit(ast, c);
+            }
+          }
+
+          case IF -> {
+            visit(ast, first);
+            writer.print(",");
+            int thenBranch = ast.nextSibling(id, first);
+            visit(ast, thenBranch);
+            int elseBranch = ast.nextSibling(id, thenBranch);
+            if (ast.kind(elseBranch) != CompactAst.Kind.NULL) {
+              writer.print(",");
+              visit(ast, elseBranch);
+            }
+          }
+
+          case WHILE -> {
+            visit(ast, first);
+            writer.print(",");
+            newline();
+            visit(ast, ast.nextSibling(id, first));
+            newline();
+          }
+
+          case RETURN -> {
+            if (ast.kind(first) != CompactAst.Kind.NULL) {
+              visit(ast, first);
+            } else {
+              writer.print("");
+            }
+          }
+
+          case CONTINUE, BREAK -> writer.print("");
+
+          case EXPR_STMT, POINTER_TYPE, SIZE_OF, VALUE_AT, ADDRESS_OF -> visit(ast, first);
+
+          case STRUCT_TYPE_DECL -> {
+            visit(ast, first);
+            for (int c = ast.nextSibling(id, first); c != -1; c = ast.nextSibling(id, c)) {
+              writer.print(",");
+              visit(ast, c);
+            }
+            newline();
+          }
+
+          case CLASS_DECL -> {
+            printClassType(ast.string(id));
+            if (ast.parentClass(id) != null) {
+              writer.print(",");
+              printClassType(ast.parentClass(id));
+            }
+            // fields, then methods
+            for (int c = first; c != -1; c = ast.nextSibling(id, c)) {
+              writer.print(",");
+              newline();
+              visit(ast, c);
+            }
+          }
+
+          case ARRAY_TYPE -> {
+            visit(ast, first);
+            writer.print("," + ast.arraySize(id));
+          }
+
+          case FUN_CALL -> {
+            writer.print(ast.string(id));
+            for (int c = first; c != -1; c = ast.nextSibling(id, c)) {
+              writer.print(",");
+              visit(ast, c);
+            }
+          }
+
+          case TYPECAST -> {
+            visit(ast, first);
+            writer.print(",");
+            int expr = ast.nextSibling(id, first);
+            if (ast.kind(expr) == CompactAst.Kind.NULL) {
+              writer.print("");
+            } else {
+              visit(ast, expr);
+            }
+          }
+
+          case ARRAY_ACCESS -> {
+            visit(ast, first);
+            writer.print(",");
+            visit(ast, ast.arrayIndex(id));
+          }
+
+          case FIELD_ACCESS -> {
+            visit(ast, first);
+            writer.print("," + ast.string(id));
+          }
+
+          default -> {
+            String delimiter = "";
+            for (int c = first; c != -1; c = ast.nextSibling(id, c)) {
+              writer.print(delimiter);
+              delimiter = ",";
+              visit(ast, c);
+            }
+          }
+        }
+        indentLevel--;
+        writer.print(")");
+      }
+    }
+
+    if (kind == CompactAst.Kind.PROGRAM) {
+      writer.flush();
+    }
+  }
 }
@@ -0,0 +1,56 @@
+package ast;
+
+import java.util.Arrays;
+
+/**
+ * Walks an AST in preorder with an explicit stack instead of recursion, so it neither overflows on
+ * deeply nested programs nor allocates per node: children are reached through {@link
+ * ASTNode#child(int)} rather than {@link ASTNode#children()}. The stack is kept between walks, so a
+ * walker reused for several passes only allocates while it grows to the depth of the deepest tree.
+ * A walker is not thread-safe and cannot be reused from inside one of its own visitors.
+ */
+public final class ASTWalker {
+
+  public interface Visitor {
+    /** Returns false to skip the children of node. */
+    boolean enter(ASTNode node);
+
+    /** Called after the children of node, if enter returned true. */
+    default void exit(ASTNode node) {}
+  }
+
+  // the nodes being visited and, for each, its number of children and the next one to visit
+  private ASTNode[] nodes = new ASTNode[64];
+  private int[] counts = new int[64];
+  private int[] next = new int[64];
+
+  public void walk(ASTNode root, Visitor visitor) {
+    if (!visitor.enter(root)) return;
+    int depth = 0;
+    nodes[0] = root;
+    counts[0] = root.childCount();
+    next[0] = 0;
+    try {
+      while (depth >= 0) {
+        ASTNode node = nodes[depth];
+        if (next[depth] == counts[depth]) {
+          visitor.exit(node);
+          nodes[depth--] = null;
+          continue;
+        }
+        ASTNode child = node.child(next[depth]++);
+        if (child == null || !visitor.enter(child)) continue;
+        if (++depth == nodes.length) {
+          nodes = Arrays.copyOf(nodes, depth * 2);
+          counts = Arrays.copyOf(counts, depth * 2);
+          next = Arrays.copyOf(next, depth * 2);
+        }
+        nodes[depth] = child;
+        counts[depth] = child.childCount();
+        next[depth] = 0;
+      }
+    } finally {
+      Arrays.fill(nodes, 0, Math.max(0, depth + 1), null);
+    }
+  }
+}
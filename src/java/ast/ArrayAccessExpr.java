@@ -20,4 +20,18 @@ public final class ArrayAccessExpr extends Expr {
   public List<ASTNode> children() {
     return List.of(array, index);
   }
+
+  @Override
+  public int childCount() {
+    return 2;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    return switch (i) {
+      case 0 -> array;
+      case 1 -> index;
+      default -> throw new IndexOutOfBoundsException(i);
+    };
+  }
 }
@@ -1,22 +1,22 @@
 package ast;
 
-import java.util.ArrayList;
 import java.util.List;
 
 // an array type with a  element type and size.
 public final class ArrayType implements Type {
   // type of elements in the array
   public final Type elementType;
-  // Dimensions of the array
+  // Dimensions of the array, shared by every use of the type so it cannot be changed
   public final List<Integer> dimensions;
 
   // Size of the array
   public final int size;
 
-  public ArrayType(Type elementType, List<Integer> dimensions, int size) {
+  // created by Types.array, there is one object per type of a program
+  ArrayType(Type elementType, List<Integer> dimensions, int size) {
     this.elementType = elementType;
     this.size = size;
-    this.dimensions = new ArrayList<>(dimensions);
+    this.dimensions = List.copyOf(dimensions);
   }
 
   public int getNumDimensions() {
@@ -34,4 +34,15 @@ public final class ArrayType implements Type {
   public List<ASTNode> children() {
     return List.of(elementType);
   }
+
+  @Override
+  public int childCount() {
+    return 1;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i != 0) throw new IndexOutOfBoundsException(i);
+    return elementType;
+  }
 }
@@ -0,0 +1,229 @@
+package ast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import parser.Parser;
+import sem.SemanticAnalyzer;
+
+/**
+ * Compares the AST objects of a large program with its {@link CompactAst}: heap retained by each,
+ * time to walk and to print every node, and time to convert between the two. The object tree is
+ * walked through {@link ASTNode#children()}, the way generic walkers used to, and with an {@link
+ * ASTWalker}; the bytes allocated are reported for both, and for the semantic analysis of each
+ * file, by the two passes and by the fused pass. Loading the program written by {@link
+ * AstSerializer} is timed against parsing its text again.
+ *
+ * <p>Usage: java -cp bin ast.AstBenchmark [dir] [copies]
+ *
+ * <p>The program is built like the one of parser.ParserBenchmark: the .c files of dir (default
+ * tests/test/test_parser) that parse without errors, without their #include lines, repeated copies
+ * times (default 200). Times are the best of several runs.
+ */
+public class AstBenchmark {
+
+  private static final int RUNS = 10;
+
+  public static void main(String[] args) throws IOException {
+    File dir = new File(args.length > 0 ? args[0] : "tests/test/test_parser");
+    int copies = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".c"));
+    if (files == null) {
+      System.out.println("Not a directory: " + dir);
+      System.exit(-1);
+    }
+    Arrays.sort(files);
+
+    StringBuilder corpus = new StringBuilder();
+    List<String> texts = new ArrayList<>();
+    for (File f : files) {
+      String text = new String(Files.readAllBytes(f.toPath()), Charset.defaultCharset());
+      if (parse(text) != null) {
+        corpus.append(text.replaceAll("(?m)^#include.*$", "")).append('\n');
+        texts.add(text);
+      }
+    }
+    String input = corpus.toString().repeat(copies);
+
+    long before = usedHeap();
+    Program program = parse(input);
+    long objects = usedHeap() - before;
+    CompactAst compact = CompactAst.of(program);
+    long both = usedHeap() - before;
+    System.out.println(
+        compact.size() + " nodes, " + input.length() + " characters (" + copies + " copies)");
+    System.out.printf(
+        "heap: objects %d KB, compact %d KB (%.1fx smaller)%n",
+        objects / 1024, (both - objects) / 1024, (double) objects / (both - objects));
+
+    long best = Long.MAX_VALUE;
+    long allocated = 0;
+    int count = 0;
+    for (int r = 0; r < RUNS; r++) {
+      long a0 = allocatedBytes();
+      long t0 = System.nanoTime();
+      count = countChildren(program);
+      best = Math.min(best, System.nanoTime() - t0);
+      allocated = allocatedBytes() - a0;
+    }
+    System.out.println(
+        "walk objects, children(): " + best / 1000 + " us, " + allocated / 1024 + " KB allocated ("
+            + count + " nodes)");
+
+    ASTWalker walker = new ASTWalker();
+    int[] entered = new int[1];
+    ASTWalker.Visitor counter =
+        node -> {
+          entered[0]++;
+          return true;
+        };
+    best = Long.MAX_VALUE;
+    for (int r = 0; r < RUNS; r++) {
+      entered[0] = 0;
+      long a0 = allocatedBytes();
+      long t0 = System.nanoTime();
+      walker.walk(program, counter);
+      best = Math.min(best, System.nanoTime() - t0);
+      allocated = allocatedBytes() - a0;
+    }
+    System.out.println(
+        "walk objects, ASTWalker: " + best / 1000 + " us, " + allocated / 1024 + " KB allocated ("
+            + entered[0] + " nodes)");
+
+    int[] visited = new int[1];
+    best = Long.MAX_VALUE;
+    for (int r = 0; r < RUNS; r++) {
+      visited[0] = 0;
+      long t0 = System.nanoTime();
+      compact.walk(
+          id -> {
+            visited[0]++;
+            return true;
+          });
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    System.out.println("walk compact: " + best / 1000 + " us (" + visited[0] + " nodes)");
+
+    PrintWriter discard = new PrintWriter(Writer.nullWriter());
+    best = Long.MAX_VALUE;
+    for (int r = 0; r < RUNS; r++) {
+      long t0 = System.nanoTime();
+      new ASTPrinter(discard).visit(program);
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    System.out.println("print objects, ASTPrinter: " + best / 1000000 + " ms");
+    best = Long.MAX_VALUE;
+    for (int r = 0; r < RUNS; r++) {
+      long t0 = System.nanoTime();
+      new ASTPrinter(discard).visit(compact);
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    System.out.println("print compact, ASTPrinter: " + best / 1000000 + " ms");
+
+    best = Long.MAX_VALUE;
+    for (int r = 0; r < RUNS; r++) {
+      long t0 = System.nanoTime();
+      CompactAst.of(program);
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    System.out.println("objects to compact: " + best / 1000000 + " ms");
+
+    best = Long.MAX_VALUE;
+    for (int r = 0; r < RUNS; r++) {
+      long t0 = System.nanoTime();
+      compact.toProgram();
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    System.out.println("compact to objects: " + best / 1000000 + " ms");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    AstSerializer.write(compact, bytes);
+    byte[] serialized = bytes.toByteArray();
+    best = Long.MAX_VALUE;
+    for (int r = 0; r < RUNS; r++) {
+      long t0 = System.nanoTime();
+      AstSerializer.read(new ByteArrayInputStream(serialized));
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    long load = best;
+    best = Long.MAX_VALUE;
+    for (int r = 0; r < RUNS; r++) {
+      long t0 = System.nanoTime();
+      parse(input);
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    System.out.printf(
+        "load %d KB serialized: %d ms, re-parse: %d ms (%.1fx faster)%n",
+        serialized.length / 1024, load / 1000000, best / 1000000, (double) best / load);
+
+    measureSemantics(texts, copies, SemanticAnalyzer.Mode.TWO_PASS);
+    measureSemantics(texts, copies, SemanticAnalyzer.Mode.FUSED);
+  }
+
+  // runs the semantic analysis on each file copies times, as many -sem runs would
+  private static void measureSemantics(
+      List<String> texts, int copies, SemanticAnalyzer.Mode mode) {
+    List<Program> programs = new ArrayList<>();
+    for (int c = 0; c < copies; c++) {
+      for (String text : texts) programs.add(parse(text));
+    }
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    long a0 = allocatedBytes();
+    long t0 = System.nanoTime();
+    for (Program program : programs) new SemanticAnalyzer(mode).analyze(program);
+    long time = System.nanoTime() - t0;
+    long allocated = allocatedBytes() - a0;
+    System.setOut(out);
+    System.out.println(
+        "semantic analysis (" + mode + ") of " + programs.size() + " programs: " + time / 1000000
+            + " ms, " + allocated / (1024 * 1024) + " MB allocated");
+  }
+
+  // the nodes reachable through children(), BaseType constants counted once per use
+  private static int countChildren(ASTNode node) {
+    int count = 1;
+    for (ASTNode child : node.children()) {
+      if (child != null) count += countChildren(child);
+    }
+    return count;
+  }
+
+  // the program of text, or null if it has lexing or parsing errors (which are not printed)
+  private static Program parse(String text) {
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    try {
+      Tokeniser tokeniser = new Tokeniser(new Scanner(text));
+      Parser parser = new Parser(tokeniser);
+      Program program = parser.parse();
+      return tokeniser.hasErrors() || parser.hasErrors() ? null : program;
+    } finally {
+      System.setOut(out);
+    }
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getCurrentThreadAllocatedBytes();
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
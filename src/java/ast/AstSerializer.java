@@ -0,0 +1,191 @@
+package ast;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes a {@link Program} to a compact binary form and reads it back, e.g. to cache the parsed
+ * programs of a build. Reading a program back is several times faster than lexing and parsing its
+ * text again. Whether a cached program still matches its source is for the caller to decide.
+ *
+ * <p>The format is the arrays of the program's {@link CompactAst}, written in bulk, big-endian:
+ *
+ * <pre>
+ *   int     MAGIC, VERSION
+ *   int     n                    number of nodes
+ *   byte[n] kinds                CompactAst.Kind ordinals
+ *   int[n]  data
+ *   int[n]  ends
+ *   int     s, c                 number of strings, total number of their chars
+ *   int[s]  string ends          in the chars
+ *   char[c] chars                the strings, concatenated
+ *   int     m
+ *   int[m]  ints                 the int pool
+ * </pre>
+ *
+ * Strings are stored as UTF-16 chars, so that any Java string (including unpaired surrogates from
+ * odd source files) reads back unchanged. Reading checks the structure and throws an {@link
+ * IOException} on truncated or corrupt input rather than building a broken tree.
+ */
+public final class AstSerializer {
+
+  private static final int MAGIC = 0x4D434153; // "MCAS"
+  private static final int VERSION = 1;
+
+  private static final int KIND_COUNT = CompactAst.Kind.values().length;
+
+  private AstSerializer() {}
+
+  public static void write(Program program, OutputStream out) throws IOException {
+    write(CompactAst.of(program), out);
+  }
+
+  public static void write(CompactAst ast, OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    int n = ast.size();
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(n);
+    data.write(ast.kinds, 0, n);
+    writeInts(data, ast.data, n);
+    writeInts(data, ast.ends, n);
+
+    String[] strings = ast.strings;
+    int[] stringEnds = new int[strings.length];
+    int chars = 0;
+    for (int i = 0; i < strings.length; i++) {
+      chars += strings[i].length();
+      stringEnds[i] = chars;
+    }
+    data.writeInt(strings.length);
+    data.writeInt(chars);
+    writeInts(data, stringEnds, strings.length);
+    ByteBuffer buffer = ByteBuffer.allocate(chars * 2);
+    CharBuffer view = buffer.asCharBuffer();
+    for (String s : strings) view.put(s);
+    data.write(buffer.array());
+
+    data.writeInt(ast.ints.length);
+    writeInts(data, ast.ints, ast.ints.length);
+    data.flush();
+  }
+
+  public static Program read(InputStream in) throws IOException {
+    CompactAst ast = readCompact(in);
+    try {
+      return ast.toProgram();
+    } catch (RuntimeException e) {
+      // a node whose children do not fit its kind, or a pool index out of range
+      throw new IOException("Corrupt AST data: " + e, e);
+    }
+  }
+
+  public static CompactAst readCompact(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC) throw new IOException("Not an AST file");
+    int version = data.readInt();
+    if (version != VERSION) throw new IOException("Unsupported AST file version " + version);
+
+    int n = readCount(data);
+    byte[] kinds = readBytes(data, n);
+    int[] nodeData = readInts(data, n);
+    int[] ends = readInts(data, n);
+
+    int s = readCount(data);
+    int chars = readCount(data);
+    int[] stringEnds = readInts(data, s);
+    byte[] bytes = readBytes(data, chars * 2L);
+    char[] text = new char[chars];
+    ByteBuffer.wrap(bytes).asCharBuffer().get(text);
+    String[] strings = new String[s];
+    int start = 0;
+    for (int i = 0; i < s; i++) {
+      if (stringEnds[i] < start || stringEnds[i] > chars) throw new IOException("Corrupt strings");
+      strings[i] = new String(text, start, stringEnds[i] - start);
+      start = stringEnds[i];
+    }
+
+    int[] ints = readInts(data, readCount(data));
+    checkStructure(kinds, ends);
+    checkArrayTypes(kinds, nodeData, ints);
+    return new CompactAst(kinds, nodeData, ends, strings, ints);
+  }
+
+  /*
+   * Node 0 must span all nodes, every node must end after itself and inside its parent, and kinds
+   * must be in range. Decoding relies on this to terminate.
+   */
+  private static void checkStructure(byte[] kinds, int[] ends) throws IOException {
+    int n = kinds.length;
+    if (n == 0 || ends[0] != n || kinds[0] != CompactAst.Kind.PROGRAM.ordinal()) {
+      throw new IOException("Corrupt AST data: no program node");
+    }
+    int[] open = new int[16];
+    int depth = 0;
+    for (int id = 0; id < n; id++) {
+      if (kinds[id] < 0 || kinds[id] >= KIND_COUNT) {
+        throw new IOException("Corrupt AST data: kind " + kinds[id] + " of node " + id);
+      }
+      while (depth > 0 && ends[open[depth - 1]] <= id) depth--;
+      int limit = depth > 0 ? ends[open[depth - 1]] : n;
+      if (ends[id] <= id || ends[id] > limit) {
+        throw new IOException("Corrupt AST data: end " + ends[id] + " of node " + id);
+      }
+      if (depth == open.length) open = Arrays.copyOf(open, depth * 2);
+      open[depth++] = id;
+    }
+  }
+
+  // the dimensions of an array type are counted by an int of the pool, check it before allocating
+  private static void checkArrayTypes(byte[] kinds, int[] data, int[] ints) throws IOException {
+    for (int id = 0; id < kinds.length; id++) {
+      if (kinds[id] != CompactAst.Kind.ARRAY_TYPE.ordinal()) continue;
+      int at = data[id];
+      boolean valid = at >= 0 && at + 2 <= ints.length;
+      if (!valid || ints[at + 1] < 0 || ints[at + 1] > ints.length - at - 2) {
+        throw new IOException("Corrupt AST data: dimensions of node " + id);
+      }
+    }
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(count * 4);
+    buffer.asIntBuffer().put(values, 0, count);
+    out.write(buffer.array());
+  }
+
+  private static int[] readInts(DataInputStream in, int count) throws IOException {
+    byte[] bytes = readBytes(in, count * 4L);
+    int[] values = new int[count];
+    ByteBuffer.wrap(bytes).asIntBuffer().get(values);
+    return values;
+  }
+
+  // reads in pieces, so that a corrupt count fails at the end of the input, not on allocation
+  private static byte[] readBytes(DataInputStream in, long count) throws IOException {
+    if (count > Integer.MAX_VALUE - 8) throw new IOException("Corrupt AST data: size " + count);
+    byte[] bytes = new byte[(int) Math.min(count, 1 << 20)];
+    int read = 0;
+    while (read < count) {
+      if (read == bytes.length) {
+        bytes = Arrays.copyOf(bytes, (int) Math.min(count, (long) read * 2));
+      }
+      in.readFully(bytes, read, bytes.length - read);
+      read = bytes.length;
+    }
+    return bytes;
+  }
+
+  private static int readCount(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    if (count < 0) throw new IOException("Corrupt AST data: count " + count);
+    return count;
+  }
+}
@@ -0,0 +1,82 @@
+package ast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import parser.Parser;
+
+/**
+ * Round-trips each file that parses through {@link AstSerializer} and compares the {@link
+ * ASTPrinter} output of the parsed program with that of the program read back, and with that of
+ * the {@link CompactAst} read back, printed without rebuilding its AST objects.
+ *
+ * <p>Usage: java -cp bin ast.AstSerializerCheck file.c...
+ *
+ * <p>Exits with 1 if a program read back differs.
+ */
+public class AstSerializerCheck {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: java -cp bin ast.AstSerializerCheck file.c...");
+      System.exit(-1);
+    }
+    int failed = 0;
+    for (String name : args) {
+      Program program = parse(new File(name));
+      if (program == null) {
+        System.out.println(name + ": skipped, parsing errors");
+        continue;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      AstSerializer.write(program, bytes);
+      Program loaded = AstSerializer.read(new ByteArrayInputStream(bytes.toByteArray()));
+      CompactAst compact = AstSerializer.readCompact(new ByteArrayInputStream(bytes.toByteArray()));
+      String expected = print(program);
+      if (expected.equals(print(loaded)) && expected.equals(print(compact))) {
+        System.out.println(name + ": " + bytes.size() + " bytes");
+      } else {
+        System.out.println(name + ": FAILED, the program read back differs");
+        failed++;
+      }
+    }
+    System.out.println(failed == 0 ? "Round trip: pass" : "Round trip: " + failed + " failed");
+    if (failed > 0) System.exit(1);
+  }
+
+  private static String print(Program program) {
+    StringWriter text = new StringWriter();
+    PrintWriter writer = new PrintWriter(text);
+    new ASTPrinter(writer).visit(program);
+    writer.flush();
+    return text.toString();
+  }
+
+  private static String print(CompactAst ast) {
+    StringWriter text = new StringWriter();
+    PrintWriter writer = new PrintWriter(text);
+    new ASTPrinter(writer).visit(ast);
+    writer.flush();
+    return text.toString();
+  }
+
+  // the program of file, or null if it has lexing or parsing errors (which are not printed)
+  private static Program parse(File file) throws IOException {
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    try {
+      Tokeniser tokeniser = new Tokeniser(new Scanner(file));
+      Parser parser = new Parser(tokeniser);
+      Program program = parser.parse();
+      return tokeniser.hasErrors() || parser.hasErrors() ? null : program;
+    } finally {
+      System.setOut(out);
+    }
+  }
+}
@@ -9,4 +9,14 @@ public enum BaseType implements Type {
     public List<ASTNode> children() {
         return new ArrayList<ASTNode>();
     }
+
+    @Override
+    public int childCount() {
+        return 0;
+    }
+
+    @Override
+    public ASTNode child(int i) {
+        throw new IndexOutOfBoundsException(i);
+    }
 }
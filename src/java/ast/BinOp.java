@@ -21,4 +21,18 @@ public final class BinOp extends Expr {
   public List<ASTNode> children() {
     return List.of(left, right);
   }
+
+  @Override
+  public int childCount() {
+    return 2;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    return switch (i) {
+      case 0 -> left;
+      case 1 -> right;
+      default -> throw new IndexOutOfBoundsException(i);
+    };
+  }
 }
@@ -22,4 +22,15 @@ public final class Block extends Stmt {
     children.addAll(stmts);
     return children;
   }
+
+  @Override
+  public int childCount() {
+    return vds.size() + stmts.size();
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i < 0) throw new IndexOutOfBoundsException(i);
+    return i < vds.size() ? vds.get(i) : stmts.get(i - vds.size());
+  }
 }
@@ -16,4 +16,14 @@ public final class ChrLiteral extends Expr {
     // there are no children for a character literal
     return List.of();
   }
+
+  @Override
+  public int childCount() {
+    return 0;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    throw new IndexOutOfBoundsException(i);
+  }
 }
@@ -32,4 +32,15 @@ public final class ClassDecl extends Decl {
     children.addAll(methods);
     return children;
   }
+
+  @Override
+  public int childCount() {
+    return fields.size() + methods.size();
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i < 0) throw new IndexOutOfBoundsException(i);
+    return i < fields.size() ? fields.get(i) : methods.get(i - fields.size());
+  }
 }
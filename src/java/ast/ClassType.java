@@ -10,26 +10,25 @@ import java.util.List;
 
 public final class ClassType implements Type {
   public final String name;
-  // vtable label
-  public String vtableLabel;
 
-  public ClassType(String name) {
+  // created by Types.classType, there is one object per type of a program
+  ClassType(String name) {
     this.name = name;
-    this.vtableLabel = null;
   }
 
-  // setters and getters for vtableLabel
-  public void setVTableLabel(String lbl) {
-    this.vtableLabel = lbl;
+  @Override
+  public List<ASTNode> children() {
+    // ClassType no child AST nodes
+    return List.of();
   }
 
-  public String getVTableLabel() {
-    return vtableLabel;
+  @Override
+  public int childCount() {
+    return 0;
   }
 
   @Override
-  public List<ASTNode> children() {
-    // ClassType no child AST nodes
-    return List.of();
+  public ASTNode child(int i) {
+    throw new IndexOutOfBoundsException(i);
   }
 }
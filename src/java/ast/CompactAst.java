@@ -0,0 +1,554 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The form in which {@link AstSerializer} stores a {@link Program}: a copy of it in three primitive
+ * arrays instead of one object (and a few lists) per node. Nodes are numbered in preorder, so the
+ * subtree of node id is the range of ids [id, end(id)) and its children are found without any child
+ * list:
+ *
+ * <pre>
+ *   for (int c = ast.firstChild(id); c != -1; c = ast.nextSibling(id, c)) ...
+ * </pre>
+ *
+ * <p>Per node only the kind, one int of data (a literal value, an operator, or an index in the
+ * string or int pool) and the end of its subtree are kept; names and literals are shared in a
+ * string pool. An absent optional child (the else branch of an if, the value of a return) is a
+ * NULL node.
+ *
+ * <p>This is not an AST the compiler passes run on. The name and type analyses and the code
+ * generator read and annotate the fields of {@link ASTNode} objects, and there is no adapter that
+ * lets them work on node ids: {@link #toProgram()} rebuilds the whole program as objects, which
+ * costs as much memory as parsing it. The serializer writes and reads the arrays as they are, and
+ * {@link ASTPrinter#visit(CompactAst)} prints them through the accessors, as other readers can, or
+ * through {@link #walk(Visitor)}. Only what the parser produces is stored, not the annotations
+ * added by the later passes.
+ */
+public final class CompactAst {
+
+  public enum Kind {
+    NULL(null),
+    PROGRAM(Program.class), // decls
+    FUN_DEF(FunDef.class), // type, params, block; name
+    FUN_DECL(FunDecl.class), // type, params; name
+    VAR_DECL(VarDecl.class), // type; name
+    STRUCT_TYPE_DECL(StructTypeDecl.class), // struct type, fields
+    CLASS_DECL(ClassDecl.class), // fields, methods; name and parent (int pool)
+    BLOCK(Block.class), // var decls, stmts
+    WHILE(While.class), // condition, body
+    IF(If.class), // condition, then, else
+    RETURN(Return.class), // expr
+    CONTINUE(Continue.class),
+    BREAK(Break.class),
+    EXPR_STMT(ExprStmt.class), // expr
+    INT_LITERAL(IntLiteral.class), // value
+    STR_LITERAL(StrLiteral.class), // value
+    CHR_LITERAL(ChrLiteral.class), // value
+    VAR_EXPR(VarExpr.class), // name
+    FUN_CALL(FunCallExpr.class), // args; name
+    BIN_OP(BinOp.class), // left, right; op
+    // array, indices (then index if it is not one of them); position of index
+    ARRAY_ACCESS(ArrayAccessExpr.class),
+    FIELD_ACCESS(FieldAccessExpr.class), // structure; field
+    VALUE_AT(ValueAtExpr.class), // expr
+    ADDRESS_OF(AddressOfExpr.class), // expr
+    SIZE_OF(SizeOfExpr.class), // type, expr
+    TYPECAST(TypecastExpr.class), // type, expr
+    ASSIGN(Assign.class), // left, right
+    NEW_INSTANCE(NewInstance.class), // class name
+    INSTANCE_FUN_CALL(InstanceFunCallExpr.class), // target, call
+    BASE_TYPE(BaseType.class), // base type
+    POINTER_TYPE(PointerType.class), // base type
+    STRUCT_TYPE(StructType.class), // name
+    CLASS_TYPE(ClassType.class), // name
+    ARRAY_TYPE(ArrayType.class); // element type; size and dimensions (int pool)
+
+    /** The class of the AST objects of this kind, null for NULL. */
+    public final Class<? extends ASTNode> nodeClass;
+
+    Kind(Class<? extends ASTNode> nodeClass) {
+      this.nodeClass = nodeClass;
+    }
+  }
+
+  private static final Kind[] KINDS = Kind.values();
+  private static final Op[] OPS = Op.values();
+  private static final BaseType[] BASE_TYPES = BaseType.values();
+
+  // package-private for AstSerializer
+  final byte[] kinds;
+  final int[] data;
+  final int[] ends;
+  final String[] strings;
+  final int[] ints;
+
+  CompactAst(byte[] kinds, int[] data, int[] ends, String[] strings, int[] ints) {
+    this.kinds = kinds;
+    this.data = data;
+    this.ends = ends;
+    this.strings = strings;
+    this.ints = ints;
+  }
+
+  /** Number of nodes, the root is node 0. */
+  public int size() {
+    return kinds.length;
+  }
+
+  public Kind kind(int id) {
+    return KINDS[kinds[id]];
+  }
+
+  /** The id after the last node of the subtree of id. */
+  public int end(int id) {
+    return ends[id];
+  }
+
+  public int firstChild(int id) {
+    return id + 1 < ends[id] ? id + 1 : -1;
+  }
+
+  /** The child of parent after its child c, or -1. */
+  public int nextSibling(int parent, int c) {
+    return ends[c] < ends[parent] ? ends[c] : -1;
+  }
+
+  public int childCount(int id) {
+    int n = 0;
+    for (int c = id + 1; c < ends[id]; c = ends[c]) n++;
+    return n;
+  }
+
+  /** The i-th child of id, found in time linear in i. */
+  public int child(int id, int i) {
+    int c = id + 1;
+    for (; i > 0; i--) c = ends[c];
+    return c;
+  }
+
+  /** Value of an INT_LITERAL, or position of the index of an ARRAY_ACCESS among its indices. */
+  public int intValue(int id) {
+    return data[id];
+  }
+
+  /** Name of a declaration, variable, call, struct or class type; value of a string literal. */
+  public String string(int id) {
+    return switch (kind(id)) {
+      case CLASS_DECL -> strings[ints[data[id]]];
+      default -> strings[data[id]];
+    };
+  }
+
+  /** The child of an ARRAY_ACCESS that is its index. */
+  public int arrayIndex(int id) {
+    int position = data[id];
+    if (position >= 0) return child(id, 1 + position);
+    int c = id + 1;
+    while (ends[c] < ends[id]) c = ends[c];
+    return c;
+  }
+
+  public Op op(int id) {
+    return OPS[data[id]];
+  }
+
+  public BaseType baseType(int id) {
+    return BASE_TYPES[data[id]];
+  }
+
+  /** Name of the class a CLASS_DECL extends, or null. */
+  public String parentClass(int id) {
+    int parent = ints[data[id] + 1];
+    return parent < 0 ? null : strings[parent];
+  }
+
+  public int arraySize(int id) {
+    return ints[data[id]];
+  }
+
+  public List<Integer> arrayDimensions(int id) {
+    int at = data[id] + 1;
+    List<Integer> dimensions = new ArrayList<>(ints[at]);
+    for (int i = 0; i < ints[at]; i++) dimensions.add(ints[at + 1 + i]);
+    return dimensions;
+  }
+
+  /** Walks the tree in preorder without recursion. */
+  public interface Visitor {
+    /** Returns false to skip the children of id. */
+    boolean enter(int id);
+
+    default void exit(int id) {}
+  }
+
+  public void walk(Visitor visitor) {
+    walk(0, visitor);
+  }
+
+  public void walk(int root, Visitor visitor) {
+    int[] open = new int[32];
+    int depth = 0;
+    int id = root;
+    int end = ends[root];
+    while (id < end) {
+      while (depth > 0 && ends[open[depth - 1]] <= id) visitor.exit(open[--depth]);
+      if (visitor.enter(id)) {
+        if (depth == open.length) open = Arrays.copyOf(open, depth * 2);
+        open[depth++] = id;
+        id++;
+      } else {
+        id = ends[id];
+      }
+    }
+    while (depth > 0) visitor.exit(open[--depth]);
+  }
+
+  /* ===================== ENCODING ===================== */
+
+  /** Stores program. Shared subtrees are stored once per place they appear. */
+  public static CompactAst of(Program program) {
+    return new Encoder().encode(program);
+  }
+
+  private static final class Encoder {
+    byte[] kinds = new byte[1024];
+    int[] data = new int[1024];
+    int[] ends = new int[1024];
+    int size = 0;
+    final List<String> strings = new ArrayList<>();
+    final Map<String, Integer> stringIds = new HashMap<>();
+    int[] ints = new int[64];
+    int intCount = 0;
+
+    // stands for an absent child on the stack
+    private static final Object NO_NODE = new Object();
+
+    // on the stack below the children of node id, closes its subtree
+    private record Close(int id) {}
+
+    CompactAst encode(Program program) {
+      // an explicit stack, so that deeply nested programs do not overflow the Java one
+      List<Object> stack = new ArrayList<>();
+      List<ASTNode> children = new ArrayList<>();
+      stack.add(program);
+      while (!stack.isEmpty()) {
+        Object top = stack.remove(stack.size() - 1);
+        if (top instanceof Close close) {
+          ends[close.id()] = size;
+          continue;
+        }
+        int id = add(top == NO_NODE ? null : (ASTNode) top, children);
+        stack.add(new Close(id));
+        for (int i = children.size() - 1; i >= 0; i--) {
+          ASTNode child = children.get(i);
+          stack.add(child == null ? NO_NODE : child);
+        }
+        children.clear();
+      }
+      String[] pool = strings.toArray(new String[0]);
+      return new CompactAst(
+          Arrays.copyOf(kinds, size), Arrays.copyOf(data, size), Arrays.copyOf(ends, size), pool,
+          Arrays.copyOf(ints, intCount));
+    }
+
+    // stores node without its children, which it adds to children in order; returns its id
+    private int add(ASTNode node, List<ASTNode> children) {
+      Kind kind = Kind.NULL;
+      int value = 0;
+      switch (node) {
+        case null -> {}
+        case Program p -> {
+          kind = Kind.PROGRAM;
+          children.addAll(p.decls);
+        }
+        case FunDef fd -> {
+          kind = Kind.FUN_DEF;
+          value = string(fd.name);
+          children.add(fd.type);
+          children.addAll(fd.params);
+          children.add(fd.block);
+        }
+        case FunDecl fd -> {
+          kind = Kind.FUN_DECL;
+          value = string(fd.name);
+          children.add(fd.type);
+          children.addAll(fd.params);
+        }
+        case VarDecl vd -> {
+          kind = Kind.VAR_DECL;
+          value = string(vd.name);
+          children.add(vd.type);
+        }
+        case StructTypeDecl std -> {
+          kind = Kind.STRUCT_TYPE_DECL;
+          children.add(std.structType);
+          children.addAll(std.fields);
+        }
+        case ClassDecl cd -> {
+          kind = Kind.CLASS_DECL;
+          value = intCount;
+          addInt(string(cd.name));
+          addInt(cd.parent == null ? -1 : string(cd.parent));
+          children.addAll(cd.fields);
+          children.addAll(cd.methods);
+        }
+        case Block b -> {
+          kind = Kind.BLOCK;
+          children.addAll(b.vds);
+          children.addAll(b.stmts);
+        }
+        case While w -> {
+          kind = Kind.WHILE;
+          children.add(w.condition);
+          children.add(w.body);
+        }
+        case If i -> {
+          kind = Kind.IF;
+          children.add(i.condition);
+          children.add(i.thenBranch);
+          children.add(i.elseBranch);
+        }
+        case Return r -> {
+          kind = Kind.RETURN;
+          children.add(r.expr);
+        }
+        case Continue ignored -> kind = Kind.CONTINUE;
+        case Break ignored -> kind = Kind.BREAK;
+        case ExprStmt es -> {
+          kind = Kind.EXPR_STMT;
+          children.add(es.expr);
+        }
+        case IntLiteral i -> {
+          kind = Kind.INT_LITERAL;
+          value = i.value;
+        }
+        case StrLiteral s -> {
+          kind = Kind.STR_LITERAL;
+          value = string(s.value);
+        }
+        case ChrLiteral c -> {
+          kind = Kind.CHR_LITERAL;
+          value = string(c.value);
+        }
+        case VarExpr v -> {
+          kind = Kind.VAR_EXPR;
+          value = string(v.name);
+        }
+        case FunCallExpr fc -> {
+          kind = Kind.FUN_CALL;
+          value = string(fc.name);
+          children.addAll(fc.args);
+        }
+        case BinOp b -> {
+          kind = Kind.BIN_OP;
+          value = b.op.ordinal();
+          children.add(b.left);
+          children.add(b.right);
+        }
+        case ArrayAccessExpr aa -> {
+          kind = Kind.ARRAY_ACCESS;
+          children.add(aa.array);
+          children.addAll(aa.indices);
+          value = -1;
+          for (int i = 0; i < aa.indices.size(); i++) {
+            if (aa.indices.get(i) == aa.index) value = i;
+          }
+          if (value < 0) children.add(aa.index);
+        }
+        case FieldAccessExpr fa -> {
+          kind = Kind.FIELD_ACCESS;
+          value = string(fa.field);
+          children.add(fa.structure);
+        }
+        case ValueAtExpr va -> {
+          kind = Kind.VALUE_AT;
+          children.add(va.expr);
+        }
+        case AddressOfExpr ao -> {
+          kind = Kind.ADDRESS_OF;
+          children.add(ao.expr);
+        }
+        case SizeOfExpr so -> {
+          kind = Kind.SIZE_OF;
+          children.add(so.type);
+          children.add(so.expr);
+        }
+        case TypecastExpr tc -> {
+          kind = Kind.TYPECAST;
+          children.add(tc.type);
+          children.add(tc.expr);
+        }
+        case Assign a -> {
+          kind = Kind.ASSIGN;
+          children.add(a.left);
+          children.add(a.right);
+        }
+        case NewInstance ni -> {
+          kind = Kind.NEW_INSTANCE;
+          value = string(ni.className);
+        }
+        case InstanceFunCallExpr ifc -> {
+          kind = Kind.INSTANCE_FUN_CALL;
+          children.add(ifc.target);
+          children.add(ifc.call);
+        }
+        case BaseType bt -> {
+          kind = Kind.BASE_TYPE;
+          value = bt.ordinal();
+        }
+        case PointerType pt -> {
+          kind = Kind.POINTER_TYPE;
+          children.add(pt.baseType);
+        }
+        case StructType st -> {
+          kind = Kind.STRUCT_TYPE;
+          value = string(st.name);
+        }
+        case ClassType ct -> {
+          kind = Kind.CLASS_TYPE;
+          value = string(ct.name);
+        }
+        case ArrayType at -> {
+          kind = Kind.ARRAY_TYPE;
+          value = intCount;
+          addInt(at.size);
+          addInt(at.dimensions.size());
+          for (int d : at.dimensions) addInt(d);
+          children.add(at.elementType);
+        }
+      }
+      if (size == kinds.length) {
+        kinds = Arrays.copyOf(kinds, size * 2);
+        data = Arrays.copyOf(data, size * 2);
+        ends = Arrays.copyOf(ends, size * 2);
+      }
+      kinds[size] = (byte) kind.ordinal();
+      data[size] = value;
+      return size++;
+    }
+
+    private int string(String s) {
+      Integer id = stringIds.get(s);
+      if (id == null) {
+        id = strings.size();
+        strings.add(s);
+        stringIds.put(s, id);
+      }
+      return id;
+    }
+
+    private void addInt(int value) {
+      if (intCount == ints.length) ints = Arrays.copyOf(ints, intCount * 2);
+      ints[intCount++] = value;
+    }
+  }
+
+  /* ===================== DECODING ===================== */
+
+  /** Rebuilds the Program as AST objects, e.g. to run the semantic analysis and code generator. */
+  public Program toProgram() {
+    return (Program) toNode(0);
+  }
+
+  /**
+   * Rebuilds the subtree of id. Children have larger ids than their parent, so building the nodes
+   * from the last id to the first finds the children of each node already built.
+   */
+  public ASTNode toNode(int id) {
+    ASTNode[] built = new ASTNode[ends[id] - id];
+    List<ASTNode> children = new ArrayList<>();
+    // the rebuilt nodes are a compilation of their own, with their own types
+    Types types = new Types();
+    for (int n = ends[id] - 1; n >= id; n--) {
+      for (int c = n + 1; c < ends[n]; c = ends[c]) children.add(built[c - id]);
+      built[n - id] = build(n, children, types);
+      children.clear();
+    }
+    return built[0];
+  }
+
+  private ASTNode build(int id, List<ASTNode> children, Types types) {
+    return switch (kind(id)) {
+      case NULL -> null;
+      case PROGRAM -> new Program(listOf(children, 0, Decl.class), types);
+      case FUN_DEF ->
+          new FunDef(
+              (Type) children.get(0), string(id),
+              listOf(children.subList(0, children.size() - 1), 1, VarDecl.class),
+              (Block) children.get(children.size() - 1));
+      case FUN_DECL ->
+          new FunDecl((Type) children.get(0), string(id), listOf(children, 1, VarDecl.class));
+      case VAR_DECL -> new VarDecl((Type) children.get(0), string(id));
+      case STRUCT_TYPE_DECL ->
+          new StructTypeDecl((StructType) children.get(0), listOf(children, 1, VarDecl.class));
+      case CLASS_DECL -> {
+        List<VarDecl> fields = new ArrayList<>();
+        List<FunDef> methods = new ArrayList<>();
+        for (ASTNode child : children) {
+          if (child instanceof VarDecl vd) fields.add(vd);
+          else methods.add((FunDef) child);
+        }
+        yield new ClassDecl(string(id), parentClass(id), fields, methods);
+      }
+      case BLOCK -> {
+        List<VarDecl> vds = new ArrayList<>();
+        List<Stmt> stmts = new ArrayList<>();
+        for (ASTNode child : children) {
+          if (child instanceof VarDecl vd) vds.add(vd);
+          else stmts.add((Stmt) child);
+        }
+        yield new Block(vds, stmts);
+      }
+      case WHILE -> new While((Expr) children.get(0), (Stmt) children.get(1));
+      case IF -> new If((Expr) children.get(0), (Stmt) children.get(1), (Stmt) children.get(2));
+      case RETURN -> new Return((Expr) children.get(0));
+      case CONTINUE -> new Continue();
+      case BREAK -> new Break();
+      case EXPR_STMT -> new ExprStmt((Expr) children.get(0));
+      case INT_LITERAL -> new IntLiteral(data[id]);
+      case STR_LITERAL -> new StrLiteral(string(id));
+      case CHR_LITERAL -> new ChrLiteral(string(id));
+      case VAR_EXPR -> new VarExpr(string(id));
+      case FUN_CALL -> new FunCallExpr(string(id), listOf(children, 0, Expr.class));
+      case BIN_OP -> new BinOp((Expr) children.get(0), op(id), (Expr) children.get(1));
+      case ARRAY_ACCESS -> {
+        int position = data[id];
+        int count = children.size() - (position < 0 ? 2 : 1);
+        List<Expr> indices = listOf(children.subList(0, count + 1), 1, Expr.class);
+        Expr index = position < 0 ? (Expr) children.get(count + 1) : indices.get(position);
+        yield new ArrayAccessExpr((Expr) children.get(0), indices, index);
+      }
+      case FIELD_ACCESS -> new FieldAccessExpr((Expr) children.get(0), string(id));
+      case VALUE_AT -> new ValueAtExpr((Expr) children.get(0));
+      case ADDRESS_OF -> new AddressOfExpr((Expr) children.get(0));
+      case SIZE_OF -> {
+        SizeOfExpr sizeOf = new SizeOfExpr((Type) children.get(0));
+        sizeOf.expr = (Expr) children.get(1);
+        yield sizeOf;
+      }
+      case TYPECAST -> new TypecastExpr((Type) children.get(0), (Expr) children.get(1));
+      case ASSIGN -> new Assign((Expr) children.get(0), (Expr) children.get(1));
+      case NEW_INSTANCE -> new NewInstance(string(id));
+      case INSTANCE_FUN_CALL ->
+          new InstanceFunCallExpr((Expr) children.get(0), (FunCallExpr) children.get(1));
+      case BASE_TYPE -> baseType(id);
+      case POINTER_TYPE -> types.pointer((Type) children.get(0));
+      case STRUCT_TYPE -> types.struct(string(id));
+      case CLASS_TYPE -> types.classType(string(id));
+      case ARRAY_TYPE -> types.array((Type) children.get(0), arrayDimensions(id), arraySize(id));
+    };
+  }
+
+  // a new mutable list of children[from..], as the parser builds them
+  private static <T extends ASTNode> List<T> listOf(
+      List<ASTNode> children, int from, Class<T> type) {
+    List<T> list = new ArrayList<>(children.size() - from);
+    for (int i = from; i < children.size(); i++) list.add(type.cast(children.get(i)));
+    return list;
+  }
+}
@@ -9,4 +9,14 @@ public final class Continue extends Stmt {
     // there no children for continue statement
     return List.of();
   }
+
+  @Override
+  public int childCount() {
+    return 0;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    throw new IndexOutOfBoundsException(i);
+  }
 }
@@ -15,4 +15,15 @@ public final class ExprStmt extends Stmt {
   public List<ASTNode> children() {
     return List.of(expr);
   }
+
+  @Override
+  public int childCount() {
+    return 1;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i != 0) throw new IndexOutOfBoundsException(i);
+    return expr;
+  }
 }
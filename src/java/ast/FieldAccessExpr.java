@@ -13,14 +13,28 @@ public final class FieldAccessExpr extends Expr {
   public final Expr structure;
   // The field name being accessed
   public final String field;
+  // The declaration of the field, filled in by the semantic analyser
+  public VarDecl fieldDecl;
 
   public FieldAccessExpr(Expr structure, String field) {
     this.structure = structure;
     this.field = field;
+    this.fieldDecl = null;
   }
 
   @Override
   public List<ASTNode> children() {
     return List.of(structure);
   }
+
+  @Override
+  public int childCount() {
+    return 1;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i != 0) throw new IndexOutOfBoundsException(i);
+    return structure;
+  }
 }
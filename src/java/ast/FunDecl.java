@@ -20,6 +20,17 @@ public final class FunDecl extends Decl {
     return children;
   }
 
+  @Override
+  public int childCount() {
+    return 1 + params.size();
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i < 0 || i >= childCount()) throw new IndexOutOfBoundsException(i);
+    return i == 0 ? type : params.get(i - 1);
+  }
+
   public List<Type> getParamTypes() {
     return params.stream().map(vd -> vd.type).collect(Collectors.toList());
   }
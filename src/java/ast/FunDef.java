@@ -23,6 +23,17 @@ public final class FunDef extends Decl {
     return children;
   }
 
+  @Override
+  public int childCount() {
+    return 2 + params.size();
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i < 0 || i >= childCount()) throw new IndexOutOfBoundsException(i);
+    return i == 0 ? type : i == params.size() + 1 ? block : params.get(i - 1);
+  }
+
   public List<Type> getParamTypes() {
     return params.stream().map(vd -> vd.type).collect(Collectors.toList());
   }
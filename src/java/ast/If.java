@@ -28,4 +28,15 @@ public final class If extends Stmt {
     }
     return children;
   }
+
+  @Override
+  public int childCount() {
+    return elseBranch != null ? 3 : 2;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i < 0 || i >= childCount()) throw new IndexOutOfBoundsException(i);
+    return i == 0 ? condition : i == 1 ? thenBranch : elseBranch;
+  }
 }
@@ -23,4 +23,18 @@ public final class InstanceFunCallExpr extends Expr {
     // Target object and then the function call AST
     return List.of(target, call);
   }
+
+  @Override
+  public int childCount() {
+    return 2;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    return switch (i) {
+      case 0 -> target;
+      case 1 -> call;
+      default -> throw new IndexOutOfBoundsException(i);
+    };
+  }
 }
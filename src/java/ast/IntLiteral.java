@@ -15,4 +15,14 @@ public final class IntLiteral extends Expr {
   public List<ASTNode> children() {
     return List.of();
   }
+
+  @Override
+  public int childCount() {
+    return 0;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    throw new IndexOutOfBoundsException(i);
+  }
 }
@@ -19,4 +19,14 @@ public final class NewInstance extends Expr {
     // No sub_expressions
     return List.of();
   }
+
+  @Override
+  public int childCount() {
+    return 0;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    throw new IndexOutOfBoundsException(i);
+  }
 }
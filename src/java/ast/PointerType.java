@@ -7,7 +7,8 @@ public final class PointerType implements Type {
   // The base type the pointer points to
   public final Type baseType;
 
-  public PointerType(Type baseType) {
+  // created by Types.pointer, there is one object per type of a program
+  PointerType(Type baseType) {
     this.baseType = baseType;
   }
 
@@ -15,4 +16,15 @@ public final class PointerType implements Type {
   public List<ASTNode> children() {
     return List.of(baseType);
   }
+
+  @Override
+  public int childCount() {
+    return 1;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i != 0) throw new IndexOutOfBoundsException(i);
+    return baseType;
+  }
 }
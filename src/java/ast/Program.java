@@ -7,13 +7,30 @@ public final class Program implements ASTNode {
 
     public final List<Decl> decls;
 
+    // the types of the program are interned in this table, passes that create types use it too
+    public final Types types;
 
     public Program(List<Decl> decls) {
+        this(decls, new Types());
+    }
+
+    public Program(List<Decl> decls, Types types) {
         this.decls = decls;
+        this.types = types;
     }
 
     public List<ASTNode> children() {
         return new ArrayList<>(decls);
     }
 
+    @Override
+    public int childCount() {
+        return decls.size();
+    }
+
+    @Override
+    public ASTNode child(int i) {
+        return decls.get(i);
+    }
+
 }
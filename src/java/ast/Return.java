@@ -16,4 +16,15 @@ public final class Return extends Stmt {
     // return the expression if it is not null, otherwise return an empty list
     return expr != null ? List.of(expr) : List.of();
   }
+
+  @Override
+  public int childCount() {
+    return expr != null ? 1 : 0;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i != 0 || expr == null) throw new IndexOutOfBoundsException(i);
+    return expr;
+  }
 }
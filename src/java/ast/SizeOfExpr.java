@@ -20,4 +20,15 @@ public final class SizeOfExpr extends Expr {
   public List<ASTNode> children() {
     return List.of(type);
   }
+
+  @Override
+  public int childCount() {
+    return 1;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i != 0) throw new IndexOutOfBoundsException(i);
+    return type;
+  }
 }
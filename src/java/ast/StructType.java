@@ -10,7 +10,8 @@ public final class StructType implements Type {
   // Name of the structure type
   public final String name;
 
-  public StructType(String name) {
+  // created by Types.struct, there is one object per type of a program
+  StructType(String name) {
     this.name = name;
   }
   // No children for structure types
@@ -18,4 +19,14 @@ public final class StructType implements Type {
   public List<ASTNode> children() {
     return List.of();
   }
+
+  @Override
+  public int childCount() {
+    return 0;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    throw new IndexOutOfBoundsException(i);
+  }
 }
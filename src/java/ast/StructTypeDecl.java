@@ -17,4 +17,14 @@ public final class StructTypeDecl extends Decl {
   public List<ASTNode> children() {
     return new ArrayList<>(fields);
   }
+
+  @Override
+  public int childCount() {
+    return fields.size();
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    return fields.get(i);
+  }
 }
@@ -23,4 +23,18 @@ public final class TypecastExpr extends Expr {
   public List<ASTNode> children() {
     return List.of(type, expr);
   }
+
+  @Override
+  public int childCount() {
+    return 2;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    return switch (i) {
+      case 0 -> type;
+      case 1 -> expr;
+      default -> throw new IndexOutOfBoundsException(i);
+    };
+  }
 }
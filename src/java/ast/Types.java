@@ -0,0 +1,64 @@
+package ast;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the {@link PointerType}, {@link ArrayType}, {@link StructType} and {@link ClassType}
+ * nodes of a compilation. Types are hash-consed: asking a table twice for the same type returns the
+ * same object, so two types of a program are equal exactly when they are the same object, and
+ * comparing them (with == or equals) takes constant time however deeply they are nested. The
+ * {@link BaseType}s are canonical already.
+ *
+ * <p>There is one table per compilation: the parser creates it and the {@link Program} keeps it,
+ * so that the passes that create types of their own get them from the same table. Pointers to base
+ * types are shared by all the tables (see {@link #basePointer}), the built-in functions use them.
+ * A type node may appear at several places of an AST, and must not be changed once created. A
+ * table is safe to use from several threads, as the parser and the type analyser may do.
+ */
+public final class Types {
+
+  // an array type is the same as another with the same element type, dimensions and size
+  private record ArrayKey(Type elementType, List<Integer> dimensions, int size) {}
+
+  private static final Map<BaseType, PointerType> BASE_POINTERS = new EnumMap<>(BaseType.class);
+
+  static {
+    for (BaseType bt : BaseType.values()) BASE_POINTERS.put(bt, new PointerType(bt));
+  }
+
+  // the element and base types in the keys are canonical, compared by reference
+  private final ConcurrentHashMap<Type, PointerType> pointers = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<ArrayKey, ArrayType> arrays = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, StructType> structs = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, ClassType> classes = new ConcurrentHashMap<>();
+
+  /** the type of a pointer to a base type, the same in every table. */
+  public static PointerType basePointer(BaseType baseType) {
+    return BASE_POINTERS.get(baseType);
+  }
+
+  /** the type of a pointer to baseType. */
+  public PointerType pointer(Type baseType) {
+    if (baseType instanceof BaseType bt) return basePointer(bt);
+    return pointers.computeIfAbsent(baseType, PointerType::new);
+  }
+
+  /** the type of an array of elementType, with the given dimensions and size. */
+  public ArrayType array(Type elementType, List<Integer> dimensions, int size) {
+    ArrayKey key = new ArrayKey(elementType, List.copyOf(dimensions), size);
+    return arrays.computeIfAbsent(key, k -> new ArrayType(k.elementType, k.dimensions, k.size));
+  }
+
+  /** the type of the struct called name. */
+  public StructType struct(String name) {
+    return structs.computeIfAbsent(name, StructType::new);
+  }
+
+  /** the type of the class called name. */
+  public ClassType classType(String name) {
+    return classes.computeIfAbsent(name, ClassType::new);
+  }
+}
@@ -18,4 +18,15 @@ public final class VarDecl extends Decl {
     children.add(type);
     return children;
   }
+
+  @Override
+  public int childCount() {
+    return 1;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    if (i != 0) throw new IndexOutOfBoundsException(i);
+    return type;
+  }
 }
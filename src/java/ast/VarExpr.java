@@ -16,4 +16,14 @@ public final class VarExpr extends Expr {
     List<ASTNode> children = new ArrayList<>();
     return children;
   }
+
+  @Override
+  public int childCount() {
+    return 0;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    throw new IndexOutOfBoundsException(i);
+  }
 }
@@ -18,4 +18,18 @@ public final class While extends Stmt {
   public List<ASTNode> children() {
     return List.of(condition, body);
   }
+
+  @Override
+  public int childCount() {
+    return 2;
+  }
+
+  @Override
+  public ASTNode child(int i) {
+    return switch (i) {
+      case 0 -> condition;
+      case 1 -> body;
+      default -> throw new IndexOutOfBoundsException(i);
+    };
+  }
 }
@@ -45,7 +45,7 @@ public class ExprAddrCodeGen extends CodeGen {
         // try locals or globals
         VarDecl varDecl = null;
         try {
-          varDecl = allocator.getVarDecl(v.name);
+          varDecl = allocator.getVarDecl(v);
         } catch (IllegalStateException ise) {
           // not found as var try field fallback
         }
@@ -59,12 +59,8 @@ public class ExprAddrCodeGen extends CodeGen {
             System.out.println("[ExprAddrCodeGen] Variable is NOT an array: " + v.name);
           }
 
-          int scopeLevel = allocator.getScopeLevel(v.name);
-          System.out.printf(
-              "[ExprAddrCodeGen] Variable '%s' found at scope level: %d\n", v.name, scopeLevel);
-
-          if (scopeLevel >= 0) {
-            int offset = allocator.getLocalOffset(varDecl);
+          if (allocator.isLocal(varDecl)) {
+            int offset = allocator.localVarOffsets.get(varDecl);
             System.out.printf(
                 "[ExprAddrCodeGen] Using local variable '%s' at offset: %d\n", v.name, offset);
             text.emit(OpCode.ADDIU, addrReg, Register.Arch.fp, offset);
@@ -73,7 +69,7 @@ public class ExprAddrCodeGen extends CodeGen {
               text.emit(OpCode.LW, tmp, addrReg, 0);
               return tmp;
             }
-          } else if (allocator.isGlobal(v.name)) {
+          } else if (allocator.isGlobal(varDecl)) {
             System.out.println("[ExprAddrCodeGen] Accessing global variable: " + v.name);
             text.emit(OpCode.LA, addrReg, Label.get(v.name));
           } else {
@@ -172,7 +168,7 @@ public class ExprAddrCodeGen extends CodeGen {
               "[ExprAddrCodeGen] ERROR: Field access on non-struct/type.");
         }
 
-        int offset = allocator.computeFieldOffset(structType, fa.field);
+        int offset = allocator.computeFieldOffset(structType, fa);
         offset = allocator.alignTo(offset, 4); // field alignment
 
         System.out.println(
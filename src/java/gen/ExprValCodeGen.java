@@ -209,7 +209,7 @@ public class ExprValCodeGen extends CodeGen {
         Register addrReg = null;
 
         try {
-          varDecl = allocator.getVarDecl(v.name);
+          varDecl = allocator.getVarDecl(v);
           addrReg =
               new ExprAddrCodeGen(asmProg, allocator, definedFunctions, currentClass).visit(v);
         } catch (IllegalStateException ei) {
@@ -454,7 +454,7 @@ public class ExprValCodeGen extends CodeGen {
         Register baseReg =
             new ExprAddrCodeGen(asmProg, allocator, definedFunctions).visit(fa.structure);
         if (fa.structure.type instanceof StructType structType) {
-          int offset = allocator.computeFieldOffset(structType, fa.field);
+          int offset = allocator.computeFieldOffset(structType, fa);
 
           if (fa.type.equals(BaseType.CHAR)) {
             text.emit(OpCode.LBU, resReg, baseReg, offset); // Load byte for char fields
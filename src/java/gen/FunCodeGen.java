@@ -84,7 +84,7 @@ public class FunCodeGen extends CodeGen {
       int paramStackOffset = frameSize;
       for (int i = 0; i < fd.params.size(); i++) {
         VarDecl param = fd.params.get(i);
-        int localOffset = allocator.getLocalOffset(param.name);
+        int localOffset = allocator.getLocalOffset(param);
         Type paramType = param.type;
 
         if (paramType instanceof StructType) {
@@ -19,6 +19,9 @@ public class MemAllocCodeGen extends CodeGen {
   public final Map<String, StructTypeDecl> structDeclarations = new HashMap<>();
   public final Set<String> globalVariables = new HashSet<>();
   private final Map<String, Map<String, Integer>> structFieldOffsets = new HashMap<>();
+  // declarations of the allocated globals and offsets of the fields accessed through a binding
+  private final Set<VarDecl> globalDecls = new HashSet<>();
+  private final Map<VarDecl, Integer> fieldOffsets = new HashMap<>();
 
   public final AssemblyProgram.Section dataSection;
 
@@ -118,6 +121,7 @@ public class MemAllocCodeGen extends CodeGen {
     }
 
     globalVars.put(vd.name, vd);
+    globalDecls.add(vd);
     globalOffset = alignTo(globalOffset, computeAlignment(vd.type)); // Ensure proper alignment
     globalVarOffsets.put(vd.name, globalOffset); // Track per-variable offsets
 
@@ -219,6 +223,19 @@ public class MemAllocCodeGen extends CodeGen {
     return structFieldOffsets.get(structType.name).getOrDefault(fieldName, -1);
   }
 
+  // offset of the field fa accesses, cached for its declaration when the analyser bound it
+  public int computeFieldOffset(StructType structType, FieldAccessExpr fa) {
+    if (fa.fieldDecl == null) {
+      return computeFieldOffset(structType, fa.field);
+    }
+    Integer offset = fieldOffsets.get(fa.fieldDecl);
+    if (offset == null) {
+      offset = computeFieldOffset(structType, fa.field);
+      fieldOffsets.put(fa.fieldDecl, offset);
+    }
+    return offset;
+  }
+
   public int getArrayDimensionSize(ArrayType arrayType, int i) {
     if (i < 0 || i >= arrayType.dimensions.size()) {
       throw new IndexOutOfBoundsException("[MemAlloc] ERROR: Invalid array dimension index: " + i);
@@ -292,6 +309,26 @@ public class MemAllocCodeGen extends CodeGen {
     return null;
   }
 
+  // retrieves the declaration a variable refers to from the binding left by semantic analysis,
+  // without searching the scopes. A binding to a declaration that was not allocated is a class
+  // field, and null is returned. Without a binding, the name is looked up.
+  public VarDecl getVarDecl(VarExpr v) {
+    if (v.vd == null) {
+      return getVarDecl(v.name);
+    }
+    return isLocal(v.vd) || isGlobal(v.vd) ? v.vd : null;
+  }
+
+  // Checks if a declaration is an allocated local variable or parameter.
+  public boolean isLocal(VarDecl vd) {
+    return localVarOffsets.containsKey(vd);
+  }
+
+  // Checks if a declaration is an allocated global variable.
+  public boolean isGlobal(VarDecl vd) {
+    return globalDecls.contains(vd);
+  }
+
   // Returns the total stack frame size for a function.
   public int getFrameSize(FunDef fd) {
     return frameSizes.getOrDefault(fd, 0);
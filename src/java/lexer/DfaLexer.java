@@ -0,0 +1,369 @@
+package lexer;
+
+/**
+ * Table-driven lexer engine used by {@link Tokeniser} when it is constructed with {@link
+ * Tokeniser.Engine#TABLE}. Characters are classified once through precomputed tables and tokens
+ * are recognised by walking a transition table, instead of the chains of comparisons and {@code
+ * String.indexOf} calls of the hand-written engine. It produces exactly the same Token stream,
+ * positions and errors as the hand-written engine, including its behaviour at end of file.
+ */
+final class DfaLexer {
+
+  /*
+   * Character flags, one entry per ASCII character. Anything above 127 has no flags.
+   */
+  private static final int LETTER = 1; // 'a'..'z' | 'A'..'Z'
+  private static final int DIGIT = 1 << 1; // '0'..'9'
+  private static final int IDENT_PART = 1 << 2; // letter | digit | '_'
+  private static final int WHITESPACE = 1 << 3; // Character.isWhitespace
+  private static final int CHAR_BODY = 1 << 4; // letter | digit | SpecialCharWithoutSingleQuote | ' '
+  private static final int STRING_BODY = 1 << 5; // letter | digit | SpecialCharWithoutDoubleQuote | ' '
+
+  private static final int[] FLAGS = new int[128];
+
+  // value of the escape sequence '\c', or -1 if '\c' is not a valid EscapedChar
+  private static final int[] ESCAPE_VALUE = new int[128];
+
+  /*
+   * Character classes, the columns of the transition table.
+   */
+  private static final int C_OTHER = 0;
+  private static final int C_IDENT = 1; // letter | '_'
+  private static final int C_DIGIT = 2;
+  private static final int C_EQ = 3; // '='
+  private static final int C_AMP = 4; // '&'
+  private static final int C_BAR = 5; // '|'
+  private static final int NUM_CLASSES = 6;
+
+  private static final byte[] CLASS = new byte[128];
+
+  /*
+   * DFA states. S_DEAD means there is no transition. States from S_SLASH onwards are not handled by
+   * the transition table but by dedicated code (comments, #include and literals).
+   */
+  private static final int S_DEAD = 0;
+  private static final int S_IDENT = 1;
+  private static final int S_INT = 2;
+  private static final int S_ASSIGN = 3;
+  private static final int S_EQ = 4;
+  private static final int S_LT = 5;
+  private static final int S_LE = 6;
+  private static final int S_GT = 7;
+  private static final int S_GE = 8;
+  private static final int S_BANG = 9;
+  private static final int S_NE = 10;
+  private static final int S_AMP = 11;
+  private static final int S_LOGAND = 12;
+  private static final int S_BAR = 13;
+  private static final int S_LOGOR = 14;
+  private static final int S_LBRA = 15;
+  private static final int S_RBRA = 16;
+  private static final int S_LPAR = 17;
+  private static final int S_RPAR = 18;
+  private static final int S_LSBR = 19;
+  private static final int S_RSBR = 20;
+  private static final int S_SC = 21;
+  private static final int S_COMMA = 22;
+  private static final int S_PLUS = 23;
+  private static final int S_MINUS = 24;
+  private static final int S_ASTERISK = 25;
+  private static final int S_REM = 26;
+  private static final int S_DOT = 27;
+  private static final int S_SLASH = 28;
+  private static final int S_HASH = 29;
+  private static final int S_CHAR_LITERAL = 30;
+  private static final int S_STRING_LITERAL = 31;
+  private static final int NUM_STATES = 32;
+
+  // state entered on the first character of a token
+  private static final byte[] START = new byte[128];
+
+  // NEXT[state][class] is the state after consuming a character of that class
+  private static final byte[][] NEXT = new byte[NUM_STATES][NUM_CLASSES];
+
+  // token produced when the DFA stops in a state, null if stopping there is an error
+  private static final Token.Category[] ACCEPT = new Token.Category[NUM_STATES];
+
+  // true if the state has outgoing transitions and therefore needs to look at the next character
+  private static final boolean[] HAS_NEXT = new boolean[NUM_STATES];
+
+  /*
+   * true if the state looks ahead with peek(), which fails at end of file like the hand-written
+   * engine does after '=', '<', '>', '!', '&' and '|'. Other states stop quietly at end of file.
+   */
+  private static final boolean[] STRICT_PEEK = new boolean[NUM_STATES];
+
+  static {
+    for (char c = 0; c < 128; c++) {
+      int flags = 0;
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) flags |= LETTER | IDENT_PART;
+      if (c >= '0' && c <= '9') flags |= DIGIT | IDENT_PART;
+      if (c == '_') flags |= IDENT_PART;
+      if (Character.isWhitespace(c)) flags |= WHITESPACE;
+      if ((flags & (LETTER | DIGIT)) != 0 || c == ' ') flags |= CHAR_BODY | STRING_BODY;
+      if ("`~@!$#^*%&()[]{}<>+=_-|/;:,.?\"".indexOf(c) >= 0) flags |= CHAR_BODY;
+      if ("`~@!$#^*%&()[]{}<>+=_-|/;:,.?'".indexOf(c) >= 0) flags |= STRING_BODY;
+      FLAGS[c] = flags;
+      ESCAPE_VALUE[c] = -1;
+    }
+    ESCAPE_VALUE['a'] = 7;
+    ESCAPE_VALUE['b'] = 8;
+    ESCAPE_VALUE['n'] = 10;
+    ESCAPE_VALUE['r'] = 13;
+    ESCAPE_VALUE['t'] = 9;
+    ESCAPE_VALUE['\\'] = 92;
+    ESCAPE_VALUE['\''] = 39;
+    ESCAPE_VALUE['"'] = 34;
+    ESCAPE_VALUE['0'] = 0;
+
+    for (char c = 0; c < 128; c++) {
+      if ((FLAGS[c] & LETTER) != 0 || c == '_') CLASS[c] = C_IDENT;
+      else if ((FLAGS[c] & DIGIT) != 0) CLASS[c] = C_DIGIT;
+    }
+    CLASS['='] = C_EQ;
+    CLASS['&'] = C_AMP;
+    CLASS['|'] = C_BAR;
+
+    for (char c = 0; c < 128; c++) {
+      if (CLASS[c] == C_IDENT) START[c] = S_IDENT;
+      else if (CLASS[c] == C_DIGIT) START[c] = S_INT;
+    }
+    START['='] = S_ASSIGN;
+    START['<'] = S_LT;
+    START['>'] = S_GT;
+    START['!'] = S_BANG;
+    START['&'] = S_AMP;
+    START['|'] = S_BAR;
+    START['{'] = S_LBRA;
+    START['}'] = S_RBRA;
+    START['('] = S_LPAR;
+    START[')'] = S_RPAR;
+    START['['] = S_LSBR;
+    START[']'] = S_RSBR;
+    START[';'] = S_SC;
+    START[','] = S_COMMA;
+    START['+'] = S_PLUS;
+    START['-'] = S_MINUS;
+    START['*'] = S_ASTERISK;
+    START['%'] = S_REM;
+    START['.'] = S_DOT;
+    START['/'] = S_SLASH;
+    START['#'] = S_HASH;
+    START['\''] = S_CHAR_LITERAL;
+    START['"'] = S_STRING_LITERAL;
+
+    transition(S_IDENT, C_IDENT, S_IDENT);
+    transition(S_IDENT, C_DIGIT, S_IDENT);
+    transition(S_INT, C_DIGIT, S_INT);
+    transition(S_ASSIGN, C_EQ, S_EQ);
+    transition(S_LT, C_EQ, S_LE);
+    transition(S_GT, C_EQ, S_GE);
+    transition(S_BANG, C_EQ, S_NE);
+    transition(S_AMP, C_AMP, S_LOGAND);
+    transition(S_BAR, C_BAR, S_LOGOR);
+    STRICT_PEEK[S_ASSIGN] = true;
+    STRICT_PEEK[S_LT] = true;
+    STRICT_PEEK[S_GT] = true;
+    STRICT_PEEK[S_BANG] = true;
+    STRICT_PEEK[S_AMP] = true;
+    STRICT_PEEK[S_BAR] = true;
+
+    ACCEPT[S_IDENT] = Token.Category.IDENTIFIER;
+    ACCEPT[S_INT] = Token.Category.INT_LITERAL;
+    ACCEPT[S_ASSIGN] = Token.Category.ASSIGN;
+    ACCEPT[S_EQ] = Token.Category.EQ;
+    ACCEPT[S_LT] = Token.Category.LT;
+    ACCEPT[S_LE] = Token.Category.LE;
+    ACCEPT[S_GT] = Token.Category.GT;
+    ACCEPT[S_GE] = Token.Category.GE;
+    ACCEPT[S_NE] = Token.Category.NE;
+    ACCEPT[S_AMP] = Token.Category.AND;
+    ACCEPT[S_LOGAND] = Token.Category.LOGAND;
+    ACCEPT[S_LOGOR] = Token.Category.LOGOR;
+    ACCEPT[S_LBRA] = Token.Category.LBRA;
+    ACCEPT[S_RBRA] = Token.Category.RBRA;
+    ACCEPT[S_LPAR] = Token.Category.LPAR;
+    ACCEPT[S_RPAR] = Token.Category.RPAR;
+    ACCEPT[S_LSBR] = Token.Category.LSBR;
+    ACCEPT[S_RSBR] = Token.Category.RSBR;
+    ACCEPT[S_SC] = Token.Category.SC;
+    ACCEPT[S_COMMA] = Token.Category.COMMA;
+    ACCEPT[S_PLUS] = Token.Category.PLUS;
+    ACCEPT[S_MINUS] = Token.Category.MINUS;
+    ACCEPT[S_ASTERISK] = Token.Category.ASTERISK;
+    ACCEPT[S_REM] = Token.Category.REM;
+    ACCEPT[S_DOT] = Token.Category.DOT;
+  }
+
+  private static void transition(int from, int cls, int to) {
+    NEXT[from][cls] = (byte) to;
+    HAS_NEXT[from] = true;
+  }
+
+  private static int flags(char c) {
+    return c < 128 ? FLAGS[c] : 0;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c < 128 ? (FLAGS[c] & WHITESPACE) != 0 : Character.isWhitespace(c);
+  }
+
+  private final Scanner scanner;
+  private final Tokeniser tokeniser;
+  private final StringBuilder lexeme = new StringBuilder();
+
+  DfaLexer(Scanner scanner, Tokeniser tokeniser) {
+    this.scanner = scanner;
+    this.tokeniser = tokeniser;
+  }
+
+  private Token invalid(Diagnostics.Category category, char c, int line, int column) {
+    tokeniser.error(category, c, line, column);
+    return new Token(Token.Category.INVALID, line, column);
+  }
+
+  Token nextToken() {
+    int line;
+    int column;
+    char c;
+
+    // skip whitespace and comments
+    while (true) {
+      line = scanner.getLine();
+      column = scanner.getColumn();
+      tokeniser.tokenOffset = scanner.getOffset();
+      if (!scanner.hasNext()) return new Token(Token.Category.EOF, line, column);
+      c = scanner.next();
+      if (isWhitespace(c)) continue;
+      if (c == '/') {
+        char p = scanner.peek();
+        if (p == '/') {
+          while (scanner.hasNext() && scanner.next() != '\n') {}
+          continue;
+        }
+        if (p == '*') {
+          scanner.next();
+          while (scanner.hasNext()) {
+            char nextChar = scanner.next();
+            if (nextChar == '*' && scanner.peek() == '/') {
+              scanner.next();
+              break;
+            }
+            if (!scanner.hasNext()) {
+              return invalid(Diagnostics.Category.COMMENT, nextChar, line, column);
+            }
+          }
+          continue;
+        }
+      }
+      break;
+    }
+
+    int state = c < 128 ? START[c] : S_DEAD;
+    switch (state) {
+      case S_DEAD:
+        return invalid(Diagnostics.Category.CHARACTER, c, line, column);
+      case S_SLASH:
+        // "/0" signals the end of the file, the '0' is left unread
+        if (scanner.peek() == '0') return new Token(Token.Category.EOF, line, column);
+        return new Token(Token.Category.DIV, line, column);
+      case S_HASH:
+        return hash(c, line, column);
+      case S_CHAR_LITERAL:
+        return charLiteral(c, line, column);
+      case S_STRING_LITERAL:
+        return stringLiteral(c, line, column);
+      default:
+        break;
+    }
+
+    // run the DFA until there is no transition for the next character
+    lexeme.setLength(0);
+    lexeme.append(c);
+    while (HAS_NEXT[state]) {
+      if (!STRICT_PEEK[state] && !scanner.hasNext()) break;
+      char p = scanner.peek();
+      int next = p < 128 ? NEXT[state][CLASS[p]] : S_DEAD;
+      if (next == S_DEAD) break;
+      lexeme.append(scanner.next());
+      state = next;
+    }
+
+    Token.Category category = ACCEPT[state];
+    if (category == null) return invalid(Diagnostics.Category.CHARACTER, c, line, column);
+    switch (category) {
+      case IDENTIFIER:
+        Token.Category keyword = Keywords.lookup(lexeme);
+        if (keyword != null) return new Token(keyword, line, column);
+        return new Token(
+            Token.Category.IDENTIFIER, tokeniser.getIdentifiers().intern(lexeme), line, column);
+      case INT_LITERAL:
+        return new Token(Token.Category.INT_LITERAL, lexeme.toString(), line, column);
+      default:
+        return new Token(category, line, column);
+    }
+  }
+
+  // INCLUDE, '#include'; any other '#' is an error and the letters after it are dropped
+  private Token hash(char c, int line, int column) {
+    lexeme.setLength(0);
+    lexeme.append(c);
+    while (scanner.hasNext() && (flags(scanner.peek()) & LETTER) != 0) {
+      lexeme.append(scanner.next());
+    }
+    if (lexeme.toString().equals("#include")) return new Token(Token.Category.INCLUDE, line, column);
+    return invalid(Diagnostics.Category.DIRECTIVE, c, line, column);
+  }
+
+  // CHAR_LITERAL, ''' (LowerCaseAlpha | UpperCaseAlpha | Digit | SpecialCharWithoutSingleQuote |
+  // WhiteSpace | EscapedChar) '''
+  private Token charLiteral(char c, int line, int column) {
+    try {
+      char charValue = scanner.next();
+      if (charValue == '\\') {
+        char escapedChar = scanner.next();
+        int value = escapedChar < 128 ? ESCAPE_VALUE[escapedChar] : -1;
+        if (value >= 0 && scanner.next() == '\'') {
+          return new Token(
+              Token.Category.CHAR_LITERAL, Character.toString((char) value), line, column);
+        }
+        return invalid(Diagnostics.Category.CHAR_LITERAL, escapedChar, line, column);
+      }
+      if ((flags(charValue) & CHAR_BODY) != 0 && scanner.next() == '\'') {
+        return new Token(Token.Category.CHAR_LITERAL, String.valueOf(charValue), line, column);
+      }
+      return invalid(Diagnostics.Category.CHAR_LITERAL, charValue, line, column);
+    } catch (Error e) {
+      return invalid(Diagnostics.Category.CHAR_LITERAL, c, line, column);
+    }
+  }
+
+  // STRING_LITERAL, '"' (LowerCaseAlpha | UpperCaseAlpha | Digit | SpecialCharWithoutDoubleQuote |
+  // WhiteSpace | EscapedChar)* '"'
+  private Token stringLiteral(char c, int line, int column) {
+    lexeme.setLength(0);
+    try {
+      while (scanner.hasNext()) {
+        char charValue = scanner.next();
+        if (charValue == '"') {
+          return new Token(Token.Category.STRING_LITERAL, lexeme.toString(), line, column);
+        }
+        if (charValue == '\\') {
+          char escapedChar = scanner.next();
+          int value = escapedChar < 128 ? ESCAPE_VALUE[escapedChar] : -1;
+          if (value < 0) {
+            return invalid(Diagnostics.Category.STRING_LITERAL, escapedChar, line, column);
+          }
+          lexeme.append((char) value);
+        } else if ((flags(charValue) & STRING_BODY) != 0) {
+          lexeme.append(charValue);
+        } else {
+          return invalid(Diagnostics.Category.STRING_LITERAL, charValue, line, column);
+        }
+      }
+    } catch (Error e) {
+      // end of file after a backslash, reported like an unterminated string below
+    }
+    return invalid(Diagnostics.Category.STRING_LITERAL, c, line, column);
+  }
+}
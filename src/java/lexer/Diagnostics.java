@@ -0,0 +1,119 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import util.Position;
+
+/**
+ * Collects the lexing errors of a Tokeniser instead of printing each one as it is found. A run of
+ * identical errors (same category and character, on the same line, with no other error in between)
+ * is coalesced into one diagnostic, at most MAX_SHOWN diagnostics are kept, and everything is printed
+ * with a single write by flush(). After MAX_ERRORS errors the input is considered garbage and the
+ * tokeniser gives up, so a binary file fails quickly instead of producing millions of messages.
+ */
+public final class Diagnostics {
+
+  public enum Category {
+    CHARACTER, // a character that cannot start a token, or an incomplete operator
+    DIRECTIVE, // '#' not followed by include
+    CHAR_LITERAL,
+    STRING_LITERAL,
+    COMMENT // unterminated block comment
+  }
+
+  public static final class Diagnostic {
+    public final Category category;
+    public final char character;
+    public final Position position;
+    public final String message;
+    private final int line;
+    private int count = 1;
+    private int lastColumn;
+
+    private Diagnostic(Category category, char character, int line, int column) {
+      this.category = category;
+      this.character = character;
+      this.position = new Position(line, column);
+      this.message = Tokeniser.errorMessage(character, line, column);
+      this.line = line;
+      this.lastColumn = column;
+    }
+
+    /** Number of errors coalesced into this diagnostic. */
+    public int getCount() {
+      return count;
+    }
+
+    @Override
+    public String toString() {
+      if (count == 1) return message;
+      return message + " (repeated " + (count - 1) + " more times up to " + line + ":" + lastColumn
+          + ")";
+    }
+  }
+
+  static final int MAX_SHOWN = 100;
+  static final int MAX_ERRORS = 10000;
+
+  private final List<Diagnostic> diagnostics = new ArrayList<>();
+  private Diagnostic last; // the diagnostic the previous error went to, if any
+  private int total = 0;
+  private int hidden = 0;
+  private int flushed = 0;
+  private boolean summarised = false;
+
+  public void report(Category category, char c, int line, int column) {
+    total++;
+    if (last != null && last.category == category && last.character == c && last.line == line) {
+      last.count++;
+      last.lastColumn = column;
+      return;
+    }
+    if (diagnostics.size() == MAX_SHOWN) {
+      hidden++;
+      last = null;
+      return;
+    }
+    last = new Diagnostic(category, c, line, column);
+    diagnostics.add(last);
+  }
+
+  /** True once so many errors were reported that lexing should stop. */
+  public boolean hasGivenUp() {
+    return total >= MAX_ERRORS;
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  public List<Diagnostic> getDiagnostics() {
+    return Collections.unmodifiableList(diagnostics);
+  }
+
+  /** The lines flush() prints for all the errors reported so far, summary included. */
+  public List<String> lines() {
+    List<String> lines = new ArrayList<>();
+    for (Diagnostic d : diagnostics) lines.add(d.toString());
+    if (hidden > 0) lines.add("Lexing: " + hidden + " more errors not shown");
+    if (hasGivenUp()) lines.add("Lexing: too many errors, giving up");
+    return lines;
+  }
+
+  /** Prints the diagnostics that have not been printed yet, in one write to System.out. */
+  public void flush() {
+    StringBuilder sb = new StringBuilder();
+    for (; flushed < diagnostics.size(); flushed++) {
+      sb.append(diagnostics.get(flushed)).append(System.lineSeparator());
+    }
+    last = null; // a flushed diagnostic cannot grow any more
+    if (!summarised) {
+      String nl = System.lineSeparator();
+      if (hidden > 0) sb.append("Lexing: ").append(hidden).append(" more errors not shown" + nl);
+      if (hasGivenUp()) sb.append("Lexing: too many errors, giving up").append(nl);
+      summarised = hidden > 0 || hasGivenUp();
+    }
+    if (sb.length() > 0) System.out.print(sb);
+  }
+}
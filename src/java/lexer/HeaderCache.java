@@ -0,0 +1,87 @@
+package lexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-process cache of lexed header files, keyed by canonical path and validated against the file's
+ * modification time and size. A header included by many translation units compiled in the same JVM
+ * is only tokenised once; every includer re-parses the cached {@link TokenStream}, so each one gets
+ * its own AST (the semantic analysis annotates AST nodes in place, so those cannot be shared).
+ * A header whose file changed since it was lexed is lexed again, and only the MAX_ENTRIES headers
+ * used most recently are kept.
+ *
+ * <p>The lexing errors of a header go through the {@link Diagnostics} of its tokeniser, like those
+ * of a source file (coalesced, at most MAX_SHOWN shown, lexing gives up after MAX_ERRORS), but they
+ * are printed by each includer rather than once when the header is lexed.
+ */
+public final class HeaderCache {
+
+  public static final HeaderCache INSTANCE = new HeaderCache();
+
+  static final int MAX_ENTRIES = 64;
+
+  /** The tokens of a header and the lexing errors found in it. */
+  public static final class Header {
+    public final Path path;
+    public final TokenStream tokens;
+    // the lines printed for the errors, as Diagnostics.flush() prints them
+    public final List<String> errors;
+    // the number of errors, more than the lines when errors were coalesced or not shown
+    public final int errorCount;
+
+    Header(Path path, TokenStream tokens, Diagnostics diagnostics) {
+      this.path = path;
+      this.tokens = tokens;
+      this.errors = List.copyOf(diagnostics.lines());
+      this.errorCount = diagnostics.getTotal();
+    }
+  }
+
+  private record Entry(long mtime, long size, Header header) {}
+
+  // in access order, the least recently used header is evicted first
+  private final Map<Path, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+  private int lexCount = 0;
+
+  public synchronized Header get(File file) throws IOException {
+    Path path = file.toPath().toRealPath();
+    long mtime = Files.getLastModifiedTime(path).toMillis();
+    long size = Files.size(path);
+    Entry entry = entries.get(path);
+    if (entry != null && entry.mtime() == mtime && entry.size() == size) return entry.header();
+
+    Scanner scanner = new Scanner(path.toFile());
+    Tokeniser tokeniser = new Tokeniser(scanner);
+    tokeniser.holdDiagnostics = true;
+    Header header;
+    try {
+      header = new Header(path, TokenStream.lex(tokeniser), tokeniser.getDiagnostics());
+    } finally {
+      scanner.close();
+    }
+    lexCount++;
+    entries.put(path, new Entry(mtime, size, header));
+    return header;
+  }
+
+  /** Number of times a header was actually tokenised, as opposed to served from the cache. */
+  public synchronized int getLexCount() {
+    return lexCount;
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+}
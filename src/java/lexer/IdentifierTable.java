@@ -0,0 +1,100 @@
+package lexer;
+
+import java.util.Arrays;
+
+/**
+ * Interning table for identifier names, filled by the {@link Tokeniser}. Every distinct name gets
+ * one canonical String instance and a dense integer id (in order of first appearance), so all the
+ * IDENTIFIER tokens, AST nodes and symbol table keys of a compilation that spell the same name share
+ * the same object. Equality checks on those names succeed on the identity fast path and their hash
+ * codes are computed once, and later passes may key maps by id instead of by String.
+ *
+ * <p>Lookups are done on the lexer's character buffer, so an identifier that was seen before does
+ * not allocate a new String.
+ */
+public final class IdentifierTable {
+
+  private static final int EMPTY = -1;
+
+  // id -> canonical name and its hash
+  private String[] names = new String[256];
+  private int[] hashes = new int[256];
+  private int size = 0;
+
+  // open addressing table of ids, always a power of two and at most half full
+  private int[] slots = newSlots(512);
+
+  private static int[] newSlots(int capacity) {
+    int[] s = new int[capacity];
+    Arrays.fill(s, EMPTY);
+    return s;
+  }
+
+  // same function as String.hashCode, so canonical names never need to rehash
+  private static int hash(CharSequence text) {
+    int h = 0;
+    for (int i = 0; i < text.length(); i++) h = 31 * h + text.charAt(i);
+    return h;
+  }
+
+  private static int mix(int h) {
+    return h ^ (h >>> 16);
+  }
+
+  private static boolean sameChars(String name, CharSequence text) {
+    if (name.length() != text.length()) return false;
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) != text.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  /** Returns the id of the name, adding it to the table if it has not been seen yet. */
+  public int id(CharSequence text) {
+    int h = hash(text);
+    int mask = slots.length - 1;
+    int slot = mix(h) & mask;
+    while (slots[slot] != EMPTY) {
+      int id = slots[slot];
+      if (hashes[id] == h && sameChars(names[id], text)) return id;
+      slot = (slot + 1) & mask;
+    }
+    int id = size++;
+    if (id == names.length) {
+      names = Arrays.copyOf(names, id * 2);
+      hashes = Arrays.copyOf(hashes, id * 2);
+    }
+    names[id] = text.toString();
+    hashes[id] = h;
+    slots[slot] = id;
+    if (size * 2 > slots.length) rehash();
+    return id;
+  }
+
+  /** Returns the canonical instance of the name. */
+  public String intern(CharSequence text) {
+    int id = id(text); // may grow the names array
+    return names[id];
+  }
+
+  /** Returns the canonical name with the given id. */
+  public String name(int id) {
+    if (id < 0 || id >= size) throw new IndexOutOfBoundsException("Unknown identifier id " + id);
+    return names[id];
+  }
+
+  /** Number of distinct names in the table. */
+  public int size() {
+    return size;
+  }
+
+  private void rehash() {
+    slots = newSlots(slots.length * 2);
+    int mask = slots.length - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = mix(hashes[id]) & mask;
+      while (slots[slot] != EMPTY) slot = (slot + 1) & mask;
+      slots[slot] = id;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package lexer;
+
+/**
+ * Keyword table with a collision-free (perfect) hash. Identifier-shaped lexemes are looked up
+ * directly in the lexer's character buffer, so keywords never need a temporary String and an
+ * identifier is rejected after a single slot comparison.
+ */
+final class Keywords {
+
+  private static final String[] WORDS = {
+    "class", "extends", "new", "int", "void", "char", "if", "else", "while", "return", "struct",
+    "sizeof", "continue", "break"
+  };
+
+  private static final Token.Category[] CATEGORIES = {
+    Token.Category.CLASS,
+    Token.Category.EXTENDS,
+    Token.Category.NEW,
+    Token.Category.INT,
+    Token.Category.VOID,
+    Token.Category.CHAR,
+    Token.Category.IF,
+    Token.Category.ELSE,
+    Token.Category.WHILE,
+    Token.Category.RETURN,
+    Token.Category.STRUCT,
+    Token.Category.SIZEOF,
+    Token.Category.CONTINUE,
+    Token.Category.BREAK
+  };
+
+  private static final int MIN_LENGTH = 2;
+  private static final int MAX_LENGTH = 8;
+  private static final int TABLE_SIZE = 32; // power of two
+
+  private static final char[][] SLOT_WORDS = new char[TABLE_SIZE][];
+  private static final Token.Category[] SLOT_CATEGORIES = new Token.Category[TABLE_SIZE];
+
+  static {
+    for (int i = 0; i < WORDS.length; i++) {
+      int slot = hash(WORDS[i], WORDS[i].length());
+      // the hash is only valid for this exact keyword set, fail loudly if it ever changes
+      if (SLOT_WORDS[slot] != null) {
+        throw new IllegalStateException(
+            "Keyword hash collision between " + WORDS[i] + " and " + new String(SLOT_WORDS[slot]));
+      }
+      SLOT_WORDS[slot] = WORDS[i].toCharArray();
+      SLOT_CATEGORIES[slot] = CATEGORIES[i];
+    }
+  }
+
+  private Keywords() {}
+
+  // first character, last character and length are enough to tell all keywords apart
+  private static int hash(CharSequence text, int length) {
+    return (text.charAt(0) + 25 * text.charAt(length - 1) + length) & (TABLE_SIZE - 1);
+  }
+
+  /** Returns the keyword category of the lexeme, or null if it is an ordinary identifier. */
+  static Token.Category lookup(CharSequence text) {
+    int length = text.length();
+    if (length < MIN_LENGTH || length > MAX_LENGTH) return null;
+    int slot = hash(text, length);
+    char[] word = SLOT_WORDS[slot];
+    if (word == null || word.length != length) return null;
+    for (int i = 0; i < length; i++) {
+      if (word[i] != text.charAt(i)) return null;
+    }
+    return SLOT_CATEGORIES[slot];
+  }
+}
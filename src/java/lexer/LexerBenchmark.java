@@ -0,0 +1,85 @@
+package lexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times the sequential Tokeniser against ParallelLexer with 1, 2, 4, ... worker threads, and the
+ * Tokeniser reading the input from a file through a character stream against a memory mapping.
+ *
+ * <p>Usage: java -cp bin lexer.LexerBenchmark file [copies] [maxThreads]
+ *
+ * <p>The input is the file repeated copies times (default 50), maxThreads defaults to the number of
+ * available processors. Each configuration reports the best of several runs.
+ */
+public class LexerBenchmark {
+
+  private static final int RUNS = 5;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("Usage: java lexer.LexerBenchmark file [copies] [maxThreads]");
+      System.exit(-1);
+    }
+    String text =
+        new String(Files.readAllBytes(new File(args[0]).toPath()), Charset.defaultCharset());
+    int copies = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    int maxThreads =
+        args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+    StringBuilder sb = new StringBuilder(text.length() * copies + copies);
+    for (int i = 0; i < copies; i++) sb.append(text).append('\n');
+    String input = sb.toString();
+
+    long best = Long.MAX_VALUE;
+    int tokens = 0;
+    for (int r = 0; r < RUNS; r++) {
+      long t0 = System.nanoTime();
+      tokens = TokenStream.lex(new Tokeniser(new Scanner(input))).size();
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    System.out.println(input.length() + " characters, " + tokens + " tokens");
+    System.out.println("sequential: " + best / 1000000 + " ms");
+    long sequential = best;
+
+    Path file = Files.createTempFile("lexer-benchmark", ".c");
+    try {
+      Files.writeString(file, input, Charset.defaultCharset());
+      for (boolean memoryMapped : new boolean[] {false, true}) {
+        best = Long.MAX_VALUE;
+        for (int r = 0; r < RUNS; r++) {
+          long t0 = System.nanoTime();
+          Scanner scanner = new Scanner(file.toFile(), memoryMapped);
+          TokenStream.lex(new Tokeniser(scanner));
+          scanner.close();
+          best = Math.min(best, System.nanoTime() - t0);
+        }
+        System.out.printf(
+            "from a file, %s: %d ms (%.2fx)%n",
+            memoryMapped ? "memory mapped" : "character stream",
+            best / 1000000,
+            (double) sequential / best);
+      }
+    } finally {
+      Files.delete(file);
+    }
+
+    for (int threads = 1; threads <= maxThreads; threads *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      best = Long.MAX_VALUE;
+      for (int r = 0; r < RUNS; r++) {
+        long t0 = System.nanoTime();
+        new ParallelLexer(pool).lex(input);
+        best = Math.min(best, System.nanoTime() - t0);
+      }
+      pool.shutdown();
+      System.out.printf(
+          "parallel, %d threads: %d ms (%.2fx)%n",
+          threads, best / 1000000, (double) sequential / best);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package lexer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Checks that the TABLE engine of the {@link Tokeniser} lexes each file as the DIRECT engine does:
+ * the same tokens at the same positions and offsets, the same messages and as many errors.
+ *
+ * <p>Usage: java -cp bin lexer.LexerEngineCheck file...
+ *
+ * <p>Exits with 1 if the engines differ on a file.
+ */
+public class LexerEngineCheck {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: java -cp bin lexer.LexerEngineCheck file...");
+      System.exit(-1);
+    }
+    int failed = 0;
+    for (String name : args) {
+      List<String> direct = lex(new File(name), Tokeniser.Engine.DIRECT);
+      List<String> table = lex(new File(name), Tokeniser.Engine.TABLE);
+      String result = "agree";
+      for (int i = 0; i < Math.max(direct.size(), table.size()); i++) {
+        String expected = i < direct.size() ? direct.get(i) : null;
+        String actual = i < table.size() ? table.get(i) : null;
+        if (!Objects.equals(expected, actual)) {
+          result = "engines differ: TABLE " + actual + " instead of " + expected;
+          failed++;
+          break;
+        }
+      }
+      System.out.println(name + ": " + result);
+    }
+    System.out.println(failed == 0 ? "Engine check: pass" : "Engine check: " + failed + " failed");
+    if (failed > 0) System.exit(1);
+  }
+
+  // the tokens of the file with their offsets, then what was printed and the number of errors
+  private static List<String> lex(File file, Tokeniser.Engine engine) throws IOException {
+    List<String> results = new ArrayList<>();
+    PrintStream out = System.out;
+    ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(printed));
+    try {
+      Tokeniser tokeniser = new Tokeniser(new Scanner(file), engine);
+      Token t;
+      do {
+        t = tokeniser.nextToken();
+        results.add(t + " at " + t.position() + " offset " + tokeniser.getTokenOffset());
+      } while (t.category != Token.Category.EOF);
+      results.addAll(printed.toString().lines().toList());
+      results.add(tokeniser.getNumErrors() + " errors");
+    } finally {
+      System.setOut(out);
+    }
+    return results;
+  }
+}
@@ -0,0 +1,287 @@
+package lexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import util.CompilerPass;
+
+/**
+ * Lexes a large input in chunks on a fork-join pool and stitches the results into one {@link
+ * TokenStream} that is identical to what a sequential {@link Tokeniser} produces, including the
+ * lexing diagnostics (reported in input order, with their real line and column), the error count
+ * and stopping early on garbage input.
+ *
+ * <p>Chunks start at the beginning of a line, so only their line numbers need correcting. A newline
+ * is only a safe split point if the sequential lexer is between two tokens there, i.e. not inside a
+ * comment or a literal, which cannot be decided without lexing everything before it. Each chunk is
+ * therefore lexed speculatively until it produces a token that starts in the next chunk, and the
+ * stitching step proves the split safe by checking that the next chunk produced a token at that same
+ * offset: the lexer keeps no state between tokens, so from there on both produce the same tokens. If
+ * the offsets do not meet (the split fell inside a comment or literal), the earlier chunk carries on
+ * lexing sequentially until they do.
+ */
+public final class ParallelLexer extends CompilerPass {
+
+  // below this many characters per chunk the fork-join overhead is not worth it
+  private static final int DEFAULT_MIN_CHUNK = 1 << 18;
+
+  private final ForkJoinPool pool;
+  private final int minChunk;
+  private final IdentifierTable identifiers;
+  private final Tokeniser.Engine engine;
+
+  public ParallelLexer(ForkJoinPool pool) {
+    this(pool, DEFAULT_MIN_CHUNK, Tokeniser.Engine.DIRECT, new IdentifierTable());
+  }
+
+  public ParallelLexer(
+      ForkJoinPool pool, int minChunk, Tokeniser.Engine engine, IdentifierTable identifiers) {
+    this.pool = pool;
+    this.minChunk = Math.max(1, minChunk);
+    this.engine = engine;
+    this.identifiers = identifiers;
+  }
+
+  public IdentifierTable getIdentifiers() {
+    return identifiers;
+  }
+
+  // the errors of the tokens that are kept, reported in the same order as the sequential lexer
+  private final Diagnostics diagnostics = new Diagnostics();
+
+  public Diagnostics getDiagnostics() {
+    return diagnostics;
+  }
+
+  /** Reads the file the same way {@link Scanner} does (default charset) and lexes it. */
+  public TokenStream lex(File source) throws IOException {
+    return lex(new String(Files.readAllBytes(source.toPath()), Charset.defaultCharset()));
+  }
+
+  public TokenStream lex(String input) {
+    int[] starts = splitPoints(input);
+    Chunk[] chunks = new Chunk[starts.length];
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (int k = 0; k < starts.length; k++) {
+      int end = k + 1 < starts.length ? starts[k + 1] : Integer.MAX_VALUE;
+      Chunk chunk = new Chunk(input, starts[k], end);
+      chunks[k] = chunk;
+      tasks.add(pool.submit(chunk::lexOwnRange));
+    }
+    for (ForkJoinTask<?> task : tasks) task.join();
+
+    // line of the first character of each chunk
+    int line = 1;
+    for (Chunk chunk : chunks) {
+      chunk.lineBase = line - 1;
+      line += chunk.newlines;
+    }
+    return stitch(chunks);
+  }
+
+  /*
+   * Start offsets of the chunks: 0, then the character after the first newline at or past each
+   * multiple of the chunk size.
+   */
+  private int[] splitPoints(String input) {
+    int count = Math.max(1, Math.min(pool.getParallelism() * 4, input.length() / minChunk));
+    int size = input.length() / count;
+    int[] starts = new int[count];
+    int n = 1;
+    for (int k = 1; k < count; k++) {
+      int nl = input.indexOf('\n', Math.max(k * size, starts[n - 1]));
+      if (nl < 0 || nl + 1 >= input.length()) break;
+      if (nl + 1 > starts[n - 1]) starts[n++] = nl + 1;
+    }
+    return Arrays.copyOf(starts, n);
+  }
+
+  private TokenStream stitch(Chunk[] chunks) {
+    TokenStream stream = new TokenStream();
+    int k = 0;
+    Chunk cur = chunks[0];
+    int i = 0;
+    while (true) {
+      if (i == cur.size && !cur.more(i)) {
+        // cur ended on an Error thrown by the tokeniser, report what came before it and rethrow
+        emitErrors(cur, i);
+        diagnostics.flush();
+        throw cur.failure;
+      }
+      int offset = cur.offsets[i];
+
+      // once a token starts in a later chunk, switch to that chunk if it has the same token
+      if (k + 1 < chunks.length && offset >= chunks[k + 1].start) {
+        int next = k + 1;
+        while (next + 1 < chunks.length && offset >= chunks[next + 1].start) next++;
+        int j = Arrays.binarySearch(chunks[next].offsets, 0, chunks[next].size, offset);
+        if (j >= 0) {
+          k = next;
+          cur = chunks[k];
+          i = j;
+          continue;
+        }
+      }
+
+      emitErrors(cur, i);
+      Token.Category category = cur.categories[i];
+      String data = cur.data[i];
+      if (data == null) data = "";
+      else if (category == Token.Category.IDENTIFIER) data = identifiers.intern(data);
+      stream.add(category, data, offset, cur.lines[i] + cur.lineBase, cur.columns[i]);
+      if (category == Token.Category.EOF) {
+        diagnostics.flush();
+        return stream;
+      }
+      if (diagnostics.hasGivenUp()) {
+        // the sequential lexer stops here, with an EOF where this token ended
+        int e = emitted - 1;
+        stream.add(
+            Token.Category.EOF, "", cur.errorEndOffset[e], cur.errorEndLine[e] + cur.lineBase,
+            cur.errorEndColumn[e]);
+        diagnostics.flush();
+        return stream;
+      }
+      i++;
+    }
+  }
+
+  // reports the errors raised while lexing tokens of cur up to and including token i
+  private int emitted = 0;
+  private Chunk emittedFrom;
+
+  private void emitErrors(Chunk cur, int i) {
+    if (emittedFrom != cur) {
+      emittedFrom = cur;
+      emitted = 0;
+      // errors of tokens skipped over when switching chunks are not part of the output
+      while (emitted < cur.errorCount && cur.errorToken[emitted] < i) emitted++;
+    }
+    while (emitted < cur.errorCount && cur.errorToken[emitted] <= i) {
+      int e = emitted++;
+      diagnostics.report(
+          cur.errorCategory[e], cur.errorChar[e], cur.errorLine[e] + cur.lineBase,
+          cur.errorColumn[e]);
+      incError();
+    }
+  }
+
+  /*
+   * The tokens lexed from one chunk start, in the chunk's own coordinates (lines counted from 1 at
+   * the chunk start, offsets relative to the whole input).
+   */
+  private final class Chunk implements Tokeniser.ErrorListener {
+    final String input;
+    final int start;
+    final int end;
+    final Scanner scanner;
+    final Tokeniser tokeniser;
+    int newlines;
+    int lineBase;
+
+    Token.Category[] categories = new Token.Category[256];
+    String[] data = new String[256];
+    int[] offsets = new int[256];
+    int[] lines = new int[256];
+    int[] columns = new int[256];
+    int size = 0;
+    boolean finished = false;
+    Error failure;
+
+    /*
+     * Errors, each with the index of the token being lexed when it was raised and the position where
+     * that token ended.
+     */
+    int[] errorToken = new int[8];
+    Diagnostics.Category[] errorCategory = new Diagnostics.Category[8];
+    char[] errorChar = new char[8];
+    int[] errorLine = new int[8];
+    int[] errorColumn = new int[8];
+    int[] errorEndOffset = new int[8];
+    int[] errorEndLine = new int[8];
+    int[] errorEndColumn = new int[8];
+    int errorCount = 0;
+
+    Chunk(String input, int start, int end) {
+      this.input = input;
+      this.start = start;
+      this.end = end;
+      this.scanner = new Scanner(input, start);
+      this.tokeniser = new Tokeniser(scanner, engine, new IdentifierTable());
+      this.tokeniser.errorListener = this;
+    }
+
+    // lexes until the first token that starts in the next chunk, or the end of the input
+    void lexOwnRange() {
+      for (int p = start; p < Math.min(end, input.length()); p++) {
+        if (input.charAt(p) == '\n') newlines++;
+      }
+      while (!finished && (size == 0 || offsets[size - 1] < end)) lexOne();
+    }
+
+    // makes sure token i exists if the input has one, returns false if it does not
+    boolean more(int i) {
+      while (size <= i && !finished) lexOne();
+      return size > i;
+    }
+
+    private void lexOne() {
+      Token t;
+      int errorsBefore = errorCount;
+      try {
+        t = tokeniser.nextToken();
+      } catch (Error e) {
+        failure = e;
+        finished = true;
+        return;
+      }
+      for (int e = errorsBefore; e < errorCount; e++) {
+        errorEndOffset[e] = scanner.getOffset() + start;
+        errorEndLine[e] = scanner.getLine();
+        errorEndColumn[e] = scanner.getColumn();
+      }
+      if (size == offsets.length) {
+        int capacity = size * 2;
+        categories = Arrays.copyOf(categories, capacity);
+        data = Arrays.copyOf(data, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        columns = Arrays.copyOf(columns, capacity);
+      }
+      categories[size] = t.category;
+      data[size] = t.data.isEmpty() ? null : t.data;
+      offsets[size] = tokeniser.getTokenOffset() + start;
+      lines[size] = t.line;
+      columns[size] = t.column;
+      size++;
+      if (t.category == Token.Category.EOF) finished = true;
+    }
+
+    @Override
+    public void error(Diagnostics.Category category, char c, int line, int col) {
+      if (errorCount == errorToken.length) {
+        int capacity = errorCount * 2;
+        errorToken = Arrays.copyOf(errorToken, capacity);
+        errorCategory = Arrays.copyOf(errorCategory, capacity);
+        errorChar = Arrays.copyOf(errorChar, capacity);
+        errorLine = Arrays.copyOf(errorLine, capacity);
+        errorColumn = Arrays.copyOf(errorColumn, capacity);
+        errorEndOffset = Arrays.copyOf(errorEndOffset, capacity);
+        errorEndLine = Arrays.copyOf(errorEndLine, capacity);
+        errorEndColumn = Arrays.copyOf(errorEndColumn, capacity);
+      }
+      errorToken[errorCount] = size;
+      errorCategory[errorCount] = category;
+      errorChar[errorCount] = c;
+      errorLine[errorCount] = line;
+      errorColumn[errorCount] = col;
+      errorCount++;
+    }
+  }
+}
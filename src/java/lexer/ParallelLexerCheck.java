@@ -0,0 +1,125 @@
+package lexer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that {@link ParallelLexer} lexes each file as the sequential {@link Tokeniser} does: the
+ * same tokens at the same offsets, lines and columns, the same messages and as many errors. The
+ * files are small, so they are lexed with chunks of a few characters to make the lexer split them
+ * at many points, including inside comments and literals. All the files put together are checked
+ * too, with chunks of several sizes.
+ *
+ * <p>Usage: java -cp bin lexer.ParallelLexerCheck file...
+ *
+ * <p>Exits with 1 if the parallel lexer differs from the sequential one on an input.
+ */
+public class ParallelLexerCheck {
+
+  // chunk sizes from one character per chunk up to a few per file
+  private static final int[] MIN_CHUNKS = {1, 7, 64, 1024};
+  private static final int THREADS = 4;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: java -cp bin lexer.ParallelLexerCheck file...");
+      System.exit(-1);
+    }
+    ForkJoinPool pool = new ForkJoinPool(THREADS);
+    int failed = 0;
+    StringBuilder all = new StringBuilder();
+    for (String name : args) {
+      String input = read(new File(name));
+      all.append(input).append('\n');
+      if (!check(name, input, pool)) failed++;
+    }
+    if (!check("all files", all.toString(), pool)) failed++;
+    pool.shutdown();
+    System.out.println(
+        failed == 0 ? "Parallel lexer check: pass" : "Parallel lexer check: " + failed + " failed");
+    if (failed > 0) System.exit(1);
+  }
+
+  // compares the parallel lexer with each chunk size to the sequential one, prints the result
+  private static boolean check(String name, String input, ForkJoinPool pool) {
+    List<String> sequential = lex(input, null, 0);
+    String result = "agree";
+    for (int minChunk : MIN_CHUNKS) {
+      List<String> parallel = lex(input, pool, minChunk);
+      for (int i = 0; i < Math.max(sequential.size(), parallel.size()); i++) {
+        String expected = i < sequential.size() ? sequential.get(i) : null;
+        String actual = i < parallel.size() ? parallel.get(i) : null;
+        if (!Objects.equals(expected, actual)) {
+          result = "chunks of " + minChunk + " differ: " + actual + " instead of " + expected;
+          break;
+        }
+      }
+      if (!result.equals("agree")) break;
+    }
+    System.out.println(name + ": " + result);
+    return result.equals("agree");
+  }
+
+  /*
+   * The tokens of the input with their offsets, then what was printed, the number of errors and
+   * the error the lexing ended on, if any. Lexed sequentially if pool is null.
+   */
+  private static List<String> lex(String input, ForkJoinPool pool, int minChunk) {
+    List<String> results = new ArrayList<>();
+    PrintStream out = System.out;
+    ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(printed));
+    int errors;
+    try {
+      TokenStream tokens;
+      if (pool == null) {
+        Tokeniser tokeniser = new Tokeniser(new Scanner(input));
+        tokens = lex(tokeniser, results);
+        errors = tokeniser.getNumErrors();
+      } else {
+        ParallelLexer lexer =
+            new ParallelLexer(pool, minChunk, Tokeniser.Engine.DIRECT, new IdentifierTable());
+        try {
+          tokens = lexer.lex(input);
+        } catch (Error e) {
+          tokens = null;
+          results.add("stopped: " + e);
+        }
+        errors = lexer.getNumErrors();
+      }
+      if (tokens != null) {
+        for (int i = 0; i < tokens.size(); i++) {
+          results.add(tokens.token(i) + " at " + tokens.position(i) + " offset " + tokens.offset(i));
+        }
+      }
+    } finally {
+      System.setOut(out);
+    }
+    results.addAll(printed.toString().lines().toList());
+    results.add(errors + " errors");
+    return results;
+  }
+
+  // the tokens of the tokeniser, or null with the error it stopped on added to results
+  private static TokenStream lex(Tokeniser tokeniser, List<String> results) {
+    try {
+      return TokenStream.lex(tokeniser);
+    } catch (Error e) {
+      results.add("stopped: " + e);
+      return null;
+    }
+  }
+
+  // the file as ParallelLexer.lex(File) and Scanner read it
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+  }
+}
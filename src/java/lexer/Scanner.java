@@ -1,6 +1,8 @@
 package lexer;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * @author cdubach
@@ -8,15 +10,69 @@ import java.io.*;
 public class Scanner {
 
     private BufferedReader input;
+    private MappedByteBuffer mapped;
+    private CharSequence text;
+    private int textPos;
     private int peeked = -1;
 
     private int line = 1;
     private int column = 1;
+    private int offset = 0;
 
     public Scanner(File source) throws FileNotFoundException {
         input = new BufferedReader(new FileReader(source));
     }
 
+    /**
+     * Creates a scanner that reads the source file through a read-only memory mapping instead of a
+     * character stream. Every byte is returned as-is (no charset decoding), which is what we want for
+     * ASCII Mini-C sources and avoids one synchronized reader call per character on large inputs.
+     * The file is closed once mapped, the mapping stays valid. A file too large to be mapped in one
+     * piece (over 2 GB) is read as a character stream instead.
+     */
+    public Scanner(File source, boolean memoryMapped) throws FileNotFoundException {
+        if (memoryMapped) {
+            try (RandomAccessFile file = new RandomAccessFile(source, "r");
+                 FileChannel channel = file.getChannel()) {
+                long size = channel.size();
+                if (size <= Integer.MAX_VALUE) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    return;
+                }
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException ioe) {
+                throw new Error(ioe); // propagate as unchecked exception
+            }
+        }
+        input = new BufferedReader(new FileReader(source));
+    }
+
+    /**
+     * Creates a scanner over text that is already in memory, e.g. one chunk of a larger input.
+     */
+    public Scanner(CharSequence text) {
+        this(text, 0);
+    }
+
+    /**
+     * Same as above, starting at the given index of the text. Line, column and offset are counted
+     * from that index.
+     */
+    Scanner(CharSequence text, int start) {
+        this.text = text;
+        this.textPos = start;
+    }
+
+    /**
+     * Resumes scanning text at the given index, which is at the given line and column. Offsets are
+     * still counted from that index. Used to re-lex part of an edited text.
+     */
+    public Scanner(CharSequence text, int start, int line, int column) {
+        this(text, start);
+        this.line = line;
+        this.column = column;
+    }
 
     public int getColumn() {
         return column;
@@ -26,8 +82,20 @@ public class Scanner {
         return line;
     }
 
+    /**
+     * Number of characters consumed so far, i.e. the offset of the next character in the input.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
 
     private int read() {
+        if (text != null)
+            return textPos < text.length() ? text.charAt(textPos++) : -1;
+        if (mapped != null)
+            return mapped.hasRemaining() ? (mapped.get() & 0xFF) : -1;
+
         int i;
         try {
             i = input.read();
@@ -52,6 +120,7 @@ public class Scanner {
     public char next() {
         char p = peek();
         peeked = -1;
+        offset++;
         if (p == '\n') {
             line++;
             column = 1;
@@ -77,7 +146,8 @@ public class Scanner {
 
 
     public void close() throws IOException {
-        input.close();
+        if (input != null)
+            input.close();
     }
 
 
@@ -97,7 +97,11 @@ public class Token {
 
   public final Category category;
   public final String data;
-  public final Position position;
+  public final int line;
+  public final int column;
+
+  // only built when asked for, most tokens never end up in an error message
+  private Position position;
 
   public Token(Category category, int lineNum, int colNum) {
     this(category, "", lineNum, colNum);
@@ -107,7 +111,13 @@ public class Token {
     assert (category != null);
     this.category = category;
     this.data = data;
-    this.position = new Position(lineNum, colNum);
+    this.line = lineNum;
+    this.column = colNum;
+  }
+
+  public Position position() {
+    if (position == null) position = new Position(line, column);
+    return position;
   }
 
   @Override
@@ -0,0 +1,232 @@
+package lexer;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import util.Position;
+
+/**
+ * Compact, array-backed sequence of tokens. Each token is stored as a category ordinal, a start
+ * offset, a line and a column in parallel primitive arrays; only tokens that carry text
+ * (identifiers and literals) keep a reference to their data. Token and Position objects are created
+ * on demand by {@link #token(int)} and {@link #position(int)}, typically when the parser consumes a
+ * token or an error message needs a position.
+ */
+public final class TokenStream {
+
+  private static final Token.Category[] CATEGORIES = Token.Category.values();
+
+  private byte[] categories = new byte[1024];
+  private int[] offsets = new int[1024];
+  private int[] lines = new int[1024];
+  private int[] columns = new int[1024];
+  private String[] data = new String[1024];
+  private int size = 0;
+
+  /** Lexes the whole input of the tokeniser, up to and including the EOF token. */
+  public static TokenStream lex(Tokeniser tokeniser) {
+    TokenStream stream = new TokenStream();
+    Token t;
+    do {
+      t = tokeniser.nextToken();
+      stream.add(t.category, t.data, tokeniser.getTokenOffset(), t.line, t.column);
+    } while (t.category != Token.Category.EOF);
+    return stream;
+  }
+
+  public void add(Token.Category category, String text, int offset, int line, int column) {
+    if (size == categories.length) {
+      int capacity = size * 2;
+      categories = Arrays.copyOf(categories, capacity);
+      offsets = Arrays.copyOf(offsets, capacity);
+      lines = Arrays.copyOf(lines, capacity);
+      columns = Arrays.copyOf(columns, capacity);
+      data = Arrays.copyOf(data, capacity);
+    }
+    categories[size] = (byte) category.ordinal();
+    offsets[size] = offset;
+    lines[size] = line;
+    columns[size] = column;
+    data[size] = text.isEmpty() ? null : text;
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public Token.Category category(int i) {
+    return CATEGORIES[categories[checkIndex(i)]];
+  }
+
+  public String data(int i) {
+    String text = data[checkIndex(i)];
+    return text == null ? "" : text;
+  }
+
+  public int offset(int i) {
+    return offsets[checkIndex(i)];
+  }
+
+  public int line(int i) {
+    return lines[checkIndex(i)];
+  }
+
+  public int column(int i) {
+    return columns[checkIndex(i)];
+  }
+
+  public Position position(int i) {
+    return new Position(line(i), column(i));
+  }
+
+  /**
+   * Replaces the tokens from index from (inclusive) to to (exclusive) by those of replacement, which
+   * already carry their final offsets and positions. The tokens after them follow an edit of the
+   * text: they move by offsetDelta characters and lineDelta lines, and those that were on line
+   * columnLine also move by columnDelta columns.
+   */
+  public void splice(
+      int from,
+      int to,
+      TokenStream replacement,
+      int offsetDelta,
+      int lineDelta,
+      int columnLine,
+      int columnDelta) {
+    if (from < 0 || from > to || to > size) {
+      throw new IndexOutOfBoundsException("Tokens " + from + " to " + to + " of " + size);
+    }
+    int n = replacement.size;
+    int tail = size - to;
+    int at = from + n;
+    if (at + tail > categories.length) {
+      int capacity = Math.max(at + tail, size * 2);
+      categories = Arrays.copyOf(categories, capacity);
+      offsets = Arrays.copyOf(offsets, capacity);
+      lines = Arrays.copyOf(lines, capacity);
+      columns = Arrays.copyOf(columns, capacity);
+      data = Arrays.copyOf(data, capacity);
+    }
+    System.arraycopy(categories, to, categories, at, tail);
+    System.arraycopy(offsets, to, offsets, at, tail);
+    System.arraycopy(lines, to, lines, at, tail);
+    System.arraycopy(columns, to, columns, at, tail);
+    System.arraycopy(data, to, data, at, tail);
+    for (int i = at; i < at + tail; i++) {
+      if (lines[i] == columnLine) columns[i] += columnDelta;
+      offsets[i] += offsetDelta;
+      lines[i] += lineDelta;
+    }
+    if (at + tail < size) Arrays.fill(data, at + tail, size, null); // no longer in the stream
+
+    System.arraycopy(replacement.categories, 0, categories, from, n);
+    System.arraycopy(replacement.offsets, 0, offsets, from, n);
+    System.arraycopy(replacement.lines, 0, lines, from, n);
+    System.arraycopy(replacement.columns, 0, columns, from, n);
+    System.arraycopy(replacement.data, 0, data, from, n);
+    size = at + tail;
+  }
+
+  /** Builds a Token view of the i-th token. */
+  public Token token(int i) {
+    return new Token(category(i), data(i), lines[i], columns[i]);
+  }
+
+  /*
+   * Binary format, written by write() and read back by read():
+   *   magic "MCTK", version byte
+   *   number of distinct data strings, then each string (modified UTF-8)
+   *   number of tokens, then for each token: category ordinal byte, offset delta from the previous
+   *   token, line delta from the previous token, column, and data string index + 1 (0 for none).
+   * All counts, deltas and indices are unsigned varints, so a typical token takes 5 bytes.
+   */
+  private static final int MAGIC = 0x4D43544B; // "MCTK"
+  private static final int VERSION = 1;
+
+  public void write(OutputStream os) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+    Map<String, Integer> indices = new HashMap<>();
+    String[] strings = new String[size];
+    int[] dataIndex = new int[size];
+    for (int i = 0; i < size; i++) {
+      if (data[i] == null) continue;
+      Integer index = indices.get(data[i]);
+      if (index == null) {
+        index = indices.size();
+        indices.put(data[i], index);
+        strings[index] = data[i];
+      }
+      dataIndex[i] = index + 1;
+    }
+
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    writeVarInt(out, indices.size());
+    for (int i = 0; i < indices.size(); i++) out.writeUTF(strings[i]);
+    writeVarInt(out, size);
+    int prevOffset = 0;
+    int prevLine = 0;
+    for (int i = 0; i < size; i++) {
+      out.writeByte(categories[i]);
+      writeVarInt(out, offsets[i] - prevOffset);
+      writeVarInt(out, lines[i] - prevLine);
+      writeVarInt(out, columns[i]);
+      writeVarInt(out, dataIndex[i]);
+      prevOffset = offsets[i];
+      prevLine = lines[i];
+    }
+    out.flush();
+  }
+
+  public static TokenStream read(InputStream is) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(is, 1 << 16));
+    if (in.readInt() != MAGIC) throw new IOException("Not a token stream file");
+    int version = in.readUnsignedByte();
+    if (version != VERSION) throw new IOException("Unsupported token stream version " + version);
+
+    String[] strings = new String[readVarInt(in)];
+    for (int i = 0; i < strings.length; i++) strings[i] = in.readUTF();
+
+    TokenStream stream = new TokenStream();
+    int count = readVarInt(in);
+    int offset = 0;
+    int line = 0;
+    for (int i = 0; i < count; i++) {
+      int category = in.readUnsignedByte();
+      if (category >= CATEGORIES.length) throw new IOException("Bad token category " + category);
+      offset += readVarInt(in);
+      line += readVarInt(in);
+      int column = readVarInt(in);
+      int index = readVarInt(in);
+      if (index > strings.length) throw new IOException("Bad token data index " + index);
+      String text = index == 0 ? "" : strings[index - 1];
+      stream.add(CATEGORIES[category], text, offset, line, column);
+    }
+    return stream;
+  }
+
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  private int checkIndex(int i) {
+    if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Token index " + i + " of " + size);
+    return i;
+  }
+}
@@ -10,12 +10,74 @@ public class Tokeniser extends CompilerPass {
   private final Scanner scanner;
 
   public Tokeniser(Scanner scanner) {
+    this(scanner, Engine.DIRECT);
+  }
+
+  public Tokeniser(Scanner scanner, Engine engine) {
+    this(scanner, engine, new IdentifierTable());
+  }
+
+  /*
+   * Selects how nextToken() recognises tokens. DIRECT is the hand-written chain of checks below,
+   * TABLE runs the table-driven DfaLexer. Both produce the same Token stream and errors.
+   */
+  public enum Engine {
+    DIRECT,
+    TABLE
+  }
+
+  private final Engine engine;
+
+  // the TABLE engine, created on first use so that the constructor does not hand out this
+  private DfaLexer dfa;
+
+  // canonical identifier names, shared by every pass that sees this compilation's tokens
+  private final IdentifierTable identifiers;
+
+  public Tokeniser(Scanner scanner, Engine engine, IdentifierTable identifiers) {
     this.scanner = scanner;
+    this.identifiers = identifiers;
+    this.engine = engine;
+  }
+
+  public IdentifierTable getIdentifiers() {
+    return identifiers;
+  }
+
+  // offset in the input of the first character of the last token returned by nextToken()
+  int tokenOffset;
+
+  public int getTokenOffset() {
+    return tokenOffset;
+  }
+
+  /*
+   * Receives lexing errors instead of the diagnostics, used by ParallelLexer to hold back the errors
+   * of a chunk until it knows which of its tokens are kept.
+   */
+  interface ErrorListener {
+    void error(Diagnostics.Category category, char c, int line, int col);
+  }
+
+  ErrorListener errorListener;
+
+  // errors are collected here and printed when the end of the input is reached
+  private final Diagnostics diagnostics = new Diagnostics();
+
+  // when set, the diagnostics are left to the caller instead, HeaderCache prints them per includer
+  boolean holdDiagnostics;
+
+  public Diagnostics getDiagnostics() {
+    return diagnostics;
+  }
+
+  static String errorMessage(char c, int line, int col) {
+    return "Lexing error: unrecognised character (" + c + ") at " + line + ":" + col;
   }
 
-  private void error(char c, int line, int col) {
-    String msg = "Lexing error: unrecognised character (" + c + ") at " + line + ":" + col;
-    System.out.println(msg);
+  void error(Diagnostics.Category category, char c, int line, int col) {
+    if (errorListener != null) errorListener.error(category, c, line, col);
+    else diagnostics.report(category, c, line, col);
     incError();
   }
 
@@ -89,60 +151,96 @@ public class Tokeniser extends CompilerPass {
    * To be completed
    */
   public Token nextToken() {
+    if (diagnostics.hasGivenUp()) {
+      // too many errors, the rest of the input is not worth lexing
+      tokenOffset = scanner.getOffset();
+      return new Token(Token.Category.EOF, scanner.getLine(), scanner.getColumn());
+    }
+    Token t;
+    try {
+      if (engine == Engine.TABLE && dfa == null) dfa = new DfaLexer(scanner, this);
+      t = dfa != null ? dfa.nextToken() : lexToken();
+    } catch (Error e) {
+      if (!holdDiagnostics) diagnostics.flush();
+      throw e;
+    }
+    if ((t.category == Token.Category.EOF || diagnostics.hasGivenUp()) && !holdDiagnostics) {
+      diagnostics.flush();
+    }
+    return t;
+  }
 
-    int line = scanner.getLine();
-    int column = scanner.getColumn();
+  private Token lexToken() {
+    int line;
+    int column;
+    char c;
 
     /*
-     * Debugging
+     * Skip whitespace and comments in a loop rather than by calling nextToken() again, so long runs
+     * of blank lines or comments do not grow the stack.
      */
-    // System.out.println("Current position: line " + line + ", column " + column);
+    while (true) {
+      line = scanner.getLine();
+      column = scanner.getColumn();
+      tokenOffset = scanner.getOffset();
+
+      /*
+       * Debugging
+       */
+      // System.out.println("Current position: line " + line + ", column " + column);
+
+      // [EOF], signal end of file
+      if (!scanner.hasNext()) {
+        // debug message
+        // System.out.println("EOF detected at line " + line + ", column " + column);
+        return new Token(Token.Category.EOF, scanner.getLine(), scanner.getColumn());
+      }
+      // get the next character
+      c = scanner.next();
 
-    // [EOF], signal end of file
-    if (!scanner.hasNext()) {
+      // skip white spaces between lexems
+      if (Character.isWhitespace(c)) continue;
       // debug message
-      // System.out.println("EOF detected at line " + line + ", column " + column);
-      return new Token(Token.Category.EOF, scanner.getLine(), scanner.getColumn());
+      // System.out.println("Processing character: " + c);
+
+      // Handle the comments such as [//] [/*] [*/]
+      if (c == '/') {
+        // will peak at the next character if it's '/' then it's a single line comment
+        if (scanner.peek() == '/') {
+          // will skip the rest of the line because it's a comment
+          while (scanner.hasNext() && scanner.next() != '\n') {}
+          continue;
+          // will peak at the next character if it's '*' then it's a multi line comment
+        } else if (scanner.peek() == '*') {
+          // will consume the next character which is '*'
+          scanner.next();
+          // will skip the rest of the comment until it finds '*/'
+          while (scanner.hasNext()) {
+            char nextChar = scanner.next();
+            if (nextChar == '*' && scanner.peek() == '/') {
+              // will consume the next character which is '/' as the end of multi line comments
+              scanner.next();
+              break;
+            }
+            // not closed comments
+            if (!scanner.hasNext()) {
+              error(Diagnostics.Category.COMMENT, nextChar, line, column);
+              return new Token(Token.Category.INVALID, line, column);
+            }
+          }
+          continue;
+        }
+      }
+      break;
     }
-    // get the next character
-    char c = scanner.next();
-
-    // skip white spaces between lexems
-    if (Character.isWhitespace(c)) return nextToken();
-    // debug message
-    // System.out.println("Processing character: " + c);
 
     // recognises the plus operator
     // if (c == '+') return new Token(Token.Category.PLUS, line, column);
 
     // ... to be completed
-    // Handle the comments such as [//] [/*] [*/] [//- DIV]
+    // [/0] and [/ - DIV], comments were already skipped above
     if (c == '/') {
-      // will peak at the next character if it's '/' then it's a single line comment
-      if (scanner.peek() == '/') {
-        // will skip the rest of the line because it's a comment
-        while (scanner.hasNext() && scanner.next() != '\n') {}
-        return nextToken();
-        // will peak at the next character if it's '*' then it's a multi line comment
-      } else if (scanner.peek() == '*') {
-        // will consume the next character which is '*'
-        scanner.next();
-        // will skip the rest of the comment until it finds '*/'
-        while (scanner.hasNext()) {
-          char nextChar = scanner.next();
-          if (nextChar == '*' && scanner.peek() == '/') {
-            // will consume the next character which is '/' as the end of multi line comments
-            scanner.next();
-            break;
-          }
-          // not closed comments
-          if (!scanner.hasNext()) {
-            error(nextChar, line, column);
-            return new Token(Token.Category.INVALID, line, column);
-          }
-        }
-        return nextToken();
-      } else if (scanner.peek() == '0') {
+      if (scanner.peek() == '0') {
         // return the end of the file token
         return new Token(Token.Category.EOF, line, column);
       } else {
@@ -193,39 +291,12 @@ public class Tokeniser extends CompilerPass {
       while (scanner.hasNext() && isValidIdentifierPart(scanner.peek())) {
         sb.append(scanner.next());
       }
-      String lexeme = sb.toString();
-      switch (lexeme) {
-        case "class":
-          return new Token(Token.Category.CLASS, line, column);
-        case "extends":
-          return new Token(Token.Category.EXTENDS, line, column);
-        case "new":
-          return new Token(Token.Category.NEW, line, column);
-        case "int":
-          return new Token(Token.Category.INT, line, column);
-        case "void":
-          return new Token(Token.Category.VOID, line, column);
-        case "char":
-          return new Token(Token.Category.CHAR, line, column);
-        case "if":
-          return new Token(Token.Category.IF, line, column);
-        case "else":
-          return new Token(Token.Category.ELSE, line, column);
-        case "while":
-          return new Token(Token.Category.WHILE, line, column);
-        case "return":
-          return new Token(Token.Category.RETURN, line, column);
-        case "struct":
-          return new Token(Token.Category.STRUCT, line, column);
-        case "sizeof":
-          return new Token(Token.Category.SIZEOF, line, column);
-        case "continue":
-          return new Token(Token.Category.CONTINUE, line, column);
-        case "break":
-          return new Token(Token.Category.BREAK, line, column);
-        default:
-          return new Token(Token.Category.IDENTIFIER, lexeme, line, column);
+      // keywords are recognised on the buffer, identifiers are interned from it
+      Token.Category keyword = Keywords.lookup(sb);
+      if (keyword != null) {
+        return new Token(keyword, line, column);
       }
+      return new Token(Token.Category.IDENTIFIER, identifiers.intern(sb), line, column);
     }
 
     /*
@@ -301,13 +372,13 @@ public class Tokeniser extends CompilerPass {
                 break;
               default:
                 // If the escape sequence is invalid
-                error(escapedChar, line, column);
+                error(Diagnostics.Category.CHAR_LITERAL, escapedChar, line, column);
                 return new Token(Token.Category.INVALID, line, column);
             }
             return new Token(
                 Token.Category.CHAR_LITERAL, Character.toString((char) escapeString), line, column);
           } else {
-            error(escapedChar, line, column);
+            error(Diagnostics.Category.CHAR_LITERAL, escapedChar, line, column);
             return new Token(Token.Category.INVALID, line, column);
           }
         }
@@ -321,10 +392,10 @@ public class Tokeniser extends CompilerPass {
             return new Token(Token.Category.CHAR_LITERAL, String.valueOf(charValue), line, column);
           }
         }
-        error(charValue, line, column);
+        error(Diagnostics.Category.CHAR_LITERAL, charValue, line, column);
         return new Token(Token.Category.INVALID, line, column);
       } catch (Error e) {
-        error(c, line, column);
+        error(Diagnostics.Category.CHAR_LITERAL, c, line, column);
         return new Token(Token.Category.INVALID, line, column);
       }
     }
@@ -342,7 +413,7 @@ public class Tokeniser extends CompilerPass {
       StringBuilder sb = new StringBuilder();
       try {
         if (!scanner.hasNext()) {
-          error('"', line, column);
+          error(Diagnostics.Category.STRING_LITERAL, '"', line, column);
           return new Token(Token.Category.INVALID, line, column);
         }
         while (scanner.hasNext()) {
@@ -387,7 +458,7 @@ public class Tokeniser extends CompilerPass {
               }
               sb.append((char) escapeAscii);
             } else {
-              error(escapedChar, line, column);
+              error(Diagnostics.Category.STRING_LITERAL, escapedChar, line, column);
               return new Token(Token.Category.INVALID, line, column);
             }
           } else if (isLetter(charValue)
@@ -396,12 +467,12 @@ public class Tokeniser extends CompilerPass {
               || charValue == ' ') {
             sb.append(charValue);
           } else {
-            error(charValue, line, column);
+            error(Diagnostics.Category.STRING_LITERAL, charValue, line, column);
             return new Token(Token.Category.INVALID, line, column);
           }
         }
       } catch (Error e) {
-        error('"', line, column);
+        error(Diagnostics.Category.STRING_LITERAL, '"', line, column);
         return new Token(Token.Category.INVALID, line, column);
       }
     }
@@ -462,7 +533,7 @@ public class Tokeniser extends CompilerPass {
         scanner.next();
         return new Token(Token.Category.NE, line, column);
       } else {
-        error(c, line, column);
+        error(Diagnostics.Category.CHARACTER, c, line, column);
         return new Token(Token.Category.INVALID, line, column);
       }
     }
@@ -515,7 +586,9 @@ public class Tokeniser extends CompilerPass {
     if (c == '.') return new Token(Token.Category.DOT, line, column);
 
     // if we reach this point, it means we did not recognise a valid token
-    error(c, line, column);
+    Diagnostics.Category category =
+        c == '#' ? Diagnostics.Category.DIRECTIVE : Diagnostics.Category.CHARACTER;
+    error(category, c, line, column);
     return new Token(Token.Category.INVALID, line, column);
   }
 }
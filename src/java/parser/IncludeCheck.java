@@ -0,0 +1,88 @@
+package parser;
+
+import ast.ASTPrinter;
+import ast.Program;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import lexer.HeaderCache;
+import lexer.Scanner;
+import lexer.Tokeniser;
+
+/**
+ * Parses each file with its #include "..." directives resolved, as Parser(Tokeniser, File) does,
+ * and prints its errors. Checks that each header is lexed once however often it is included, and
+ * that parsing the file again takes its headers from HeaderCache.INSTANCE and gives the same errors
+ * and program.
+ *
+ * <p>Usage: java -cp bin parser.IncludeCheck file...
+ *
+ * <p>Exits with 1 if a check fails, otherwise with 2 if a file has errors.
+ */
+public class IncludeCheck {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: java -cp bin parser.IncludeCheck file...");
+      System.exit(-1);
+    }
+    int failed = 0;
+    boolean errors = false;
+    for (String name : args) {
+      File file = new File(name);
+      HeaderCache.INSTANCE.clear();
+      int lexCount = HeaderCache.INSTANCE.getLexCount();
+      Included first = parseIncluding(file);
+      int lexed = HeaderCache.INSTANCE.getLexCount() - lexCount;
+      Included second = parseIncluding(file);
+      int relexed = HeaderCache.INSTANCE.getLexCount() - lexCount - lexed;
+      System.out.print(first.printed());
+
+      String problem = null;
+      if (lexed != first.headers()) {
+        problem = first.headers() + " headers lexed " + lexed + " times";
+      } else if (relexed > 0) {
+        problem = relexed + " headers lexed again instead of taken from the cache";
+      } else if (!second.equals(first)) {
+        problem = "parsing again gives another result";
+      }
+      if (problem != null) failed++;
+      errors |= first.errors() > 0;
+      String result = first.errors() + " errors, " + first.headers() + " headers";
+      System.out.println(name + ": " + (problem != null ? problem : result));
+    }
+    System.out.println(failed == 0 ? "Include check: pass" : "Include check: " + failed + " failed");
+    if (failed > 0) System.exit(1);
+    if (errors) System.exit(2);
+  }
+
+  // what parsing a file with its includes resolved printed, the program as printed by ASTPrinter
+  // (empty when there are errors), the number of errors and the number of headers included
+  private record Included(String printed, String program, int errors, int headers) {}
+
+  private static Included parseIncluding(File file) throws IOException {
+    PrintStream out = System.out;
+    ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(printed));
+    Scanner scanner = new Scanner(file);
+    try {
+      Tokeniser tokeniser = new Tokeniser(scanner);
+      Parser parser = new Parser(tokeniser, file);
+      Program program = parser.parse();
+      int errors = tokeniser.getNumErrors() + parser.getNumErrors();
+      StringWriter sw = new StringWriter();
+      if (errors == 0) {
+        PrintWriter writer = new PrintWriter(sw);
+        new ASTPrinter(writer).visit(program);
+        writer.flush();
+      }
+      return new Included(printed.toString(), sw.toString(), errors, parser.includedCount());
+    } finally {
+      scanner.close();
+      System.setOut(out);
+    }
+  }
+}
@@ -0,0 +1,298 @@
+package parser;
+
+import ast.Decl;
+import ast.Program;
+import ast.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lexer.IdentifierTable;
+import lexer.Scanner;
+import lexer.Token;
+import lexer.Token.Category;
+import lexer.TokenStream;
+import lexer.Tokeniser;
+
+/**
+ * Keeps a program parsed while its text is being edited, e.g. behind an editor that re-parses on
+ * every keystroke. The program is parsed one top-level declaration at a time and the token range of
+ * each is remembered. After an edit only the tokens around it are re-lexed, and only the
+ * declarations they belong to are re-parsed; the {@link Decl} nodes before and after are reused
+ * as-is in the new {@link Program}.
+ *
+ * <p>Re-lexing starts at the first token of the first affected declaration (the lexer keeps no state
+ * between tokens) and stops once it produces a token at the same place, relative to the end of the
+ * edit, as an old token: from there on the old tokens are still valid and are only shifted.
+ * Re-parsing stops at the first old declaration boundary after that point. A declaration is
+ * affected by an edit if it contains the changed tokens, if the parser could have looked ahead into
+ * them from it, or if it ended on error recovery, which may have stopped at them.
+ *
+ * <p>Each declaration is parsed with a fresh parser, so error reporting (and the error cap) is per
+ * declaration. Error messages are printed as their declaration is (re)parsed.
+ */
+public final class IncrementalParser {
+
+  // the parser never looks more than this many tokens past the current one
+  private static final int MAX_LOOKAHEAD = 4;
+
+  /*
+   * A top-level element: the tokens [start, end) it was parsed from, its declaration (null for the
+   * includes or after an error) and its parsing errors.
+   */
+  private static final class Segment {
+    int start;
+    int end;
+    final Decl decl;
+    final int errors;
+
+    Segment(int start, int end, Decl decl, int errors) {
+      this.start = start;
+      this.end = end;
+      this.decl = decl;
+      this.errors = errors;
+    }
+  }
+
+  // edited in place, the lexer reads it through CharSequence
+  private final StringBuilder text;
+  private TokenStream tokens;
+  private List<Segment> segments = new ArrayList<>();
+  // for each lexing error, the index of the token it was found in, in increasing order
+  private int[] lexErrors = new int[0];
+  private Program program;
+  private int reparsed;
+  // the types of every version of the program, reused declarations keep theirs
+  private final Types types = new Types();
+
+  public IncrementalParser(String text) {
+    this.text = new StringBuilder(text);
+    Tokeniser tokeniser = new Tokeniser(new Scanner(text));
+    TokenStream stream = new TokenStream();
+    List<Integer> errors = new ArrayList<>();
+    relex(tokeniser, 0, stream, errors, -1, -1);
+    this.tokens = stream;
+    this.lexErrors = toArray(errors);
+    List<Segment> parsed = new ArrayList<>();
+    parse(0, parsed, new ArrayList<>(), 0);
+    this.segments = parsed;
+    this.program = buildProgram();
+    this.reparsed = segments.size();
+  }
+
+  public Program getProgram() {
+    return program;
+  }
+
+  public String getText() {
+    return text.toString();
+  }
+
+  // the tokens of the current text, for IncrementalParserCheck
+  TokenStream getTokens() {
+    return tokens;
+  }
+
+  /** Lexing and parsing errors of the current text. */
+  public int getNumErrors() {
+    int n = lexErrors.length;
+    for (Segment s : segments) n += s.errors;
+    return n;
+  }
+
+  public boolean hasErrors() {
+    return getNumErrors() > 0;
+  }
+
+  /** Number of top-level elements parsed by the last edit (or by the initial parse). */
+  public int getReparsedCount() {
+    return reparsed;
+  }
+
+  /**
+   * Replaces length characters at offset of the text with replacement and returns the program of
+   * the new text. previous must be the program returned last by this parser.
+   */
+  public Program reparse(Program previous, int offset, int length, String replacement) {
+    if (previous != program) {
+      throw new IllegalArgumentException("Not the program this parser returned last");
+    }
+    if (offset < 0 || length < 0 || offset + length > text.length()) {
+      throw new IndexOutOfBoundsException(
+          "Edit of " + length + " characters at " + offset + " in " + text.length());
+    }
+    String removed = text.substring(offset, offset + length);
+    text.replace(offset, offset + length, replacement);
+    int delta = replacement.length() - length;
+    int editEnd = offset + replacement.length(); // in the new text
+
+    // first segment to re-parse: the one holding the last token starting before the edit, or a
+    // segment the parser may have looked into it from, or one that ended on error recovery
+    int first = Math.max(0, lastTokenBefore(offset));
+    int k = segmentOf(Math.max(0, first - MAX_LOOKAHEAD));
+    while (k > 0 && segments.get(k - 1).errors > 0) k--;
+    int from = k < segments.size() ? segments.get(k).start : first;
+
+    // re-lex from there (from the start of the text if the edit is before the first token) until
+    // the new tokens meet the old ones again
+    int base = from == 0 ? 0 : tokens.offset(from);
+    Scanner scanner =
+        from == 0
+            ? new Scanner(text)
+            : new Scanner(text, base, tokens.line(from), tokens.column(from));
+    Tokeniser tokeniser = new Tokeniser(scanner, Tokeniser.Engine.DIRECT, new IdentifierTable());
+    TokenStream fresh = new TokenStream();
+    List<Integer> errors = new ArrayList<>();
+    int to;
+    try {
+      to = relex(tokeniser, base, fresh, errors, editEnd, delta);
+    } catch (Error e) {
+      // the tokeniser gave up on the new text, keep the old one
+      text.replace(offset, editEnd, removed);
+      throw e;
+    }
+    tokeniser.getDiagnostics().flush();
+
+    // the token where they meet is an old one, shifted
+    int count = fresh.size();
+    int lineDelta = 0;
+    int columnDelta = 0;
+    int columnLine = -1;
+    if (to < tokens.size()) {
+      count--;
+      lineDelta = fresh.line(count) - tokens.line(to);
+      columnDelta = fresh.column(count) - tokens.column(to);
+      columnLine = tokens.line(to);
+    }
+    TokenStream lexed = new TokenStream();
+    for (int i = 0; i < count; i++) {
+      lexed.add(fresh.category(i), fresh.data(i), fresh.offset(i), fresh.line(i), fresh.column(i));
+    }
+    int tokenDelta = lexed.size() - (to - from);
+    tokens.splice(from, to, lexed, delta, lineDelta, columnLine, columnDelta);
+    lexErrors = spliceErrors(from, to, errors, lexed.size());
+
+    // the old segments that only contain shifted tokens can be reused, unless they move to or from
+    // the start of the program, the only place where #include directives are parsed as such
+    List<Segment> kept = new ArrayList<>(segments.subList(0, k));
+    List<Segment> reusable = new ArrayList<>();
+    for (int j = k; j < segments.size(); j++) {
+      Segment s = segments.get(j);
+      if (s.start >= to && (s.start == 0) == (s.start + tokenDelta == 0)) {
+        s.start += tokenDelta;
+        s.end += tokenDelta;
+        reusable.add(s);
+      }
+    }
+    reparsed = parse(from, kept, reusable, 0);
+    segments = kept;
+    program = buildProgram();
+    return program;
+  }
+
+  /*
+   * Lexes tokens into stream, with offsets counted from base, until EOF or, when editEnd >= 0, the
+   * first token at or after editEnd that starts where an old token started (old offset + delta).
+   * That last token is added too and the index of the old one is returned, or the number of old
+   * tokens if the new EOF is reached first (an unterminated comment makes EOF start where the comment
+   * does). For each lexing error, the index of the token it was found in is added to errors.
+   */
+  private int relex(
+      Tokeniser tokeniser, int base, TokenStream stream, List<Integer> errors, int editEnd,
+      int delta) {
+    int old = editEnd < 0 ? -1 : Math.max(0, lastTokenBefore(editEnd - delta));
+    while (true) {
+      int errorsBefore = tokeniser.getNumErrors();
+      Token t = tokeniser.nextToken();
+      int offset = tokeniser.getTokenOffset() + base;
+      for (int e = errorsBefore; e < tokeniser.getNumErrors(); e++) errors.add(stream.size());
+      stream.add(t.category, t.data, offset, t.line, t.column);
+      if (editEnd >= 0 && offset >= editEnd) {
+        // old tokens are in increasing offset order, and so are the new ones
+        while (old < tokens.size() - 1 && tokens.offset(old) < offset - delta) old++;
+        if (tokens.offset(old) == offset - delta) return old;
+      }
+      if (t.category == Category.EOF) return editEnd < 0 ? -1 : tokens.size();
+    }
+  }
+
+  /*
+   * Parses top-level elements from token index i, adding them to parsed, until EOF or until an
+   * element would start where reusable.get(r) starts, in which case it and those after it are
+   * added instead. Returns the number of elements parsed.
+   */
+  private int parse(int i, List<Segment> parsed, List<Segment> reusable, int r) {
+    int count = 0;
+    while (tokens.category(i) != Category.EOF) {
+      while (r < reusable.size() && reusable.get(r).start < i) r++;
+      if (r < reusable.size() && reusable.get(r).start == i) {
+        parsed.addAll(reusable.subList(r, reusable.size()));
+        return count;
+      }
+      Parser parser = new Parser(tokens, types);
+      Decl decl = parser.parseTopLevel(i);
+      int end = parser.tokenIndex();
+      parsed.add(new Segment(i, end, decl, parser.getNumErrors()));
+      count++;
+      i = end;
+    }
+    return count;
+  }
+
+  private Program buildProgram() {
+    List<Decl> decls = new ArrayList<>(segments.size());
+    for (Segment s : segments) {
+      if (s.decl != null) decls.add(s.decl);
+    }
+    return new Program(decls, types);
+  }
+
+  // index of the last token (not EOF) starting before offset, -1 if there is none
+  private int lastTokenBefore(int offset) {
+    int lo = 0;
+    int hi = tokens.size() - 2;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (tokens.offset(mid) < offset) lo = mid + 1;
+      else hi = mid - 1;
+    }
+    return hi;
+  }
+
+  // index of the segment holding token i, or of the first segment after it
+  private int segmentOf(int i) {
+    int lo = 0;
+    int hi = segments.size() - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (segments.get(mid).end <= i) lo = mid + 1;
+      else hi = mid - 1;
+    }
+    return lo;
+  }
+
+  /*
+   * The lexing errors after replacing the tokens [from, to) by count new ones, whose errors are in
+   * fresh (indices counted from the first new token).
+   */
+  private int[] spliceErrors(int from, int to, List<Integer> fresh, int count) {
+    int tokenDelta = count - (to - from);
+    int[] result = new int[lexErrors.length + fresh.size()];
+    int n = 0;
+    for (int e : lexErrors) {
+      if (e < from) result[n++] = e;
+    }
+    for (int e : fresh) {
+      if (e < count) result[n++] = from + e;
+    }
+    for (int e : lexErrors) {
+      if (e >= to) result[n++] = e + tokenDelta;
+    }
+    return Arrays.copyOf(result, n);
+  }
+
+  private static int[] toArray(List<Integer> list) {
+    int[] result = new int[list.size()];
+    for (int i = 0; i < result.length; i++) result[i] = list.get(i);
+    return result;
+  }
+}
@@ -0,0 +1,161 @@
+package parser;
+
+import ast.ASTPrinter;
+import ast.Program;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.Random;
+import lexer.Scanner;
+import lexer.TokenStream;
+import lexer.Tokeniser;
+
+/**
+ * Checks that an {@link IncrementalParser} kept up to date through a series of edits gives the
+ * tokens, program and errors that lexing and parsing the edited text from scratch gives: the tokens
+ * of a {@link Tokeniser}, with their offsets, lines and columns, the program and errors of an
+ * IncrementalParser created on the new text and, when there are no errors, the program of the
+ * sequential {@link Parser}. The edits are
+ * typing and deleting at random places, always the same for a given input, including braces,
+ * comment and literal delimiters that change how much has to be re-lexed and re-parsed. All the
+ * files put together, without their #include lines, are checked too.
+ *
+ * <p>Usage: java -cp bin parser.IncrementalParserCheck file...
+ *
+ * <p>Exits with 1 if an edit gives another result than parsing from scratch.
+ */
+public class IncrementalParserCheck {
+
+  private static final int EDITS = 200;
+  private static final String[] TYPED = {
+    "x", " ", "\n", "1", "{", "}", "(", ")", ";", "/*", "*/", "//", "\"", "'", "int y;", "struct"
+  };
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: java -cp bin parser.IncrementalParserCheck file...");
+      System.exit(-1);
+    }
+    int failed = 0;
+    StringBuilder all = new StringBuilder();
+    for (String name : args) {
+      String text =
+          new String(Files.readAllBytes(new File(name).toPath()), Charset.defaultCharset());
+      all.append(text.replaceAll("(?m)^#include.*$", "")).append('\n');
+      if (!check(name, text)) failed++;
+    }
+    if (!check("all files", all.toString())) failed++;
+    System.out.println(
+        failed == 0
+            ? "Incremental parser check: pass"
+            : "Incremental parser check: " + failed + " failed");
+    if (failed > 0) System.exit(1);
+  }
+
+  // applies the edits to the text, compares after each one, prints the result
+  private static boolean check(String name, String text) {
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    String result = null;
+    int reparsed = 0;
+    try {
+      Random random = new Random(name.hashCode());
+      IncrementalParser parser = new IncrementalParser(text);
+      Program program = parser.getProgram();
+      for (int e = 0; e < EDITS && result == null; e++) {
+        String current = parser.getText();
+        int offset = random.nextInt(current.length() + 1);
+        int length =
+            random.nextBoolean() ? 0 : random.nextInt(Math.min(6, current.length() - offset) + 1);
+        String replacement = random.nextInt(3) == 0 ? "" : TYPED[random.nextInt(TYPED.length)];
+        String edited =
+            current.substring(0, offset) + replacement + current.substring(offset + length);
+        try {
+          program = parser.reparse(program, offset, length, replacement);
+        } catch (Error err) {
+          // the lexer gave up on the new text, so must a parse from scratch, the text is kept
+          result = fromScratch(edited) == null ? null : "edit " + e + " stopped: " + err;
+          continue;
+        }
+        reparsed += parser.getReparsedCount();
+        String expected = fromScratch(edited);
+        String actual = parser.getNumErrors() + " errors\n" + print(program);
+        String tokens = differentToken(parser.getTokens(), edited);
+        if (!parser.getText().equals(edited)) {
+          result = "edit " + e + " gives another text";
+        } else if (tokens != null) {
+          result = "edit " + e + " gives " + tokens;
+        } else if (!actual.equals(expected)) {
+          result =
+              "edit " + e + " (" + length + " characters at " + offset + " replaced by \""
+                  + replacement + "\") gives\n" + actual + "instead of\n" + expected;
+        }
+      }
+    } finally {
+      System.setOut(out);
+    }
+    if (result == null) {
+      result = "agree, " + reparsed + " elements re-parsed in " + EDITS + " edits";
+    }
+    System.out.println(name + ": " + result);
+    return result.startsWith("agree");
+  }
+
+  /*
+   * The number of errors and the program parsed from scratch by an IncrementalParser, checked
+   * against the sequential Parser when there are no errors. Null if the lexer gives up on the text.
+   */
+  private static String fromScratch(String text) {
+    IncrementalParser parser;
+    try {
+      parser = new IncrementalParser(text);
+    } catch (Error e) {
+      return null;
+    }
+    String program = print(parser.getProgram());
+    if (parser.getNumErrors() == 0) {
+      Tokeniser tokeniser = new Tokeniser(new Scanner(text));
+      Parser sequential = new Parser(tokeniser);
+      String expected = print(sequential.parse());
+      if (tokeniser.getNumErrors() + sequential.getNumErrors() > 0 || !expected.equals(program)) {
+        return "sequential parser gives another program\n" + expected;
+      }
+    }
+    return parser.getNumErrors() + " errors\n" + program;
+  }
+
+  // the first token that differs from those lexed from scratch, null if there is none
+  private static String differentToken(TokenStream tokens, String text) {
+    TokenStream expected = TokenStream.lex(new Tokeniser(new Scanner(text)));
+    for (int i = 0; i < Math.max(tokens.size(), expected.size()); i++) {
+      String actual = i < tokens.size() ? describe(tokens, i) : null;
+      String lexed = i < expected.size() ? describe(expected, i) : null;
+      if (!Objects.equals(actual, lexed)) return actual + " instead of " + lexed;
+    }
+    return null;
+  }
+
+  private static String describe(TokenStream tokens, int i) {
+    return tokens.token(i) + " at " + tokens.position(i) + " offset " + tokens.offset(i);
+  }
+
+  // the program as ASTPrinter prints it, which it may not manage after a parsing error
+  private static String print(Program program) {
+    StringWriter sw = new StringWriter();
+    PrintWriter writer = new PrintWriter(sw);
+    try {
+      new ASTPrinter(writer).visit(program);
+    } catch (RuntimeException e) {
+      writer.print(" stopped: " + e);
+    }
+    writer.println();
+    writer.flush();
+    return sw.toString();
+  }
+}
@@ -0,0 +1,155 @@
+package parser;
+
+import ast.ASTPrinter;
+import ast.Program;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+import lexer.Scanner;
+import lexer.TokenStream;
+import lexer.Tokeniser;
+
+/**
+ * Checks that parsing each file on a worker pool gives what the sequential {@link Parser} gives:
+ * the same program, as printed by ASTPrinter, the same messages and as many errors. The files are
+ * small, so they are parsed with groups of a few tokens to make the parser cut them into many
+ * groups. Each file is also parsed with one of its tokens taken out, at several places, to check
+ * that errors are reported and recovered from as the sequential parser does. All the files put
+ * together, without their #include lines, are checked too.
+ *
+ * <p>Usage: java -cp bin parser.ParallelParserCheck file...
+ *
+ * <p>Exits with 1 if parsing in parallel differs from parsing sequentially on an input.
+ */
+public class ParallelParserCheck {
+
+  // group sizes from one token per group up to a few groups per file
+  private static final int[] MIN_GROUPS = {1, 5, 32, 256};
+  private static final int THREADS = 4;
+  // number of places a token is taken out at, spread over the input
+  private static final int REMOVALS = 16;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: java -cp bin parser.ParallelParserCheck file...");
+      System.exit(-1);
+    }
+    ForkJoinPool pool = new ForkJoinPool(THREADS);
+    int failed = 0;
+    StringBuilder all = new StringBuilder();
+    for (String name : args) {
+      String text =
+          new String(Files.readAllBytes(new File(name).toPath()), Charset.defaultCharset());
+      // the grammar only allows #include at the start
+      all.append(text.replaceAll("(?m)^#include.*$", "")).append('\n');
+      if (!check(name, text, pool)) failed++;
+    }
+    if (!check("all files", all.toString(), pool)) failed++;
+    pool.shutdown();
+    System.out.println(
+        failed == 0
+            ? "Parallel parser check: pass"
+            : "Parallel parser check: " + failed + " failed");
+    if (failed > 0) System.exit(1);
+  }
+
+  // compares parsing in parallel with each group size to parsing sequentially, prints the result
+  private static boolean check(String name, String text, ForkJoinPool pool) {
+    TokenStream tokens = lex(text);
+    String result = compare(tokens, pool);
+    int variants = 0;
+    int errors = 0;
+    // the last token is EOF, which is kept
+    int step = Math.max(1, (tokens.size() - 1) / REMOVALS);
+    for (int i = 0; result == null && i < tokens.size() - 1; i += step) {
+      TokenStream removed = without(tokens, i);
+      result = compare(removed, pool);
+      if (result != null) result = "without token " + i + ", " + result;
+      variants++;
+      if (parse(removed, null, 0).errors() > 0) errors++;
+    }
+    if (result == null) result = "agree, " + errors + " of " + variants + " with a token out have errors";
+    System.out.println(name + ": " + result);
+    return result.startsWith("agree");
+  }
+
+  // how parsing in parallel with some group size differs from parsing sequentially, if it does
+  private static String compare(TokenStream tokens, ForkJoinPool pool) {
+    Parsed sequential = parse(tokens, null, 0);
+    for (int minGroup : MIN_GROUPS) {
+      Parsed parallel = parse(tokens, pool, minGroup);
+      if (!parallel.equals(sequential)) {
+        return "groups of " + minGroup + " differ: " + difference(sequential, parallel);
+      }
+    }
+    return null;
+  }
+
+  // the tokens with token i taken out
+  private static TokenStream without(TokenStream tokens, int i) {
+    TokenStream result = new TokenStream();
+    for (int j = 0; j < tokens.size(); j++) {
+      if (j != i) {
+        result.add(
+            tokens.category(j), tokens.data(j), tokens.offset(j), tokens.line(j), tokens.column(j));
+      }
+    }
+    return result;
+  }
+
+  private static String difference(Parsed expected, Parsed actual) {
+    if (expected.errors() != actual.errors()) {
+      return actual.errors() + " errors instead of " + expected.errors();
+    } else if (!expected.printed().equals(actual.printed())) {
+      return "printed\n" + actual.printed() + "instead of\n" + expected.printed();
+    }
+    return "another program";
+  }
+
+  // what parsing printed, the program as printed by ASTPrinter and the number of errors
+  private record Parsed(String printed, String program, int errors) {}
+
+  // parses sequentially if pool is null
+  private static Parsed parse(TokenStream tokens, ForkJoinPool pool, int minGroup) {
+    PrintStream out = System.out;
+    ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(printed));
+    try {
+      Parser parser = pool == null ? new Parser(tokens) : new Parser(tokens, pool, minGroup);
+      Program program = parser.parse();
+      return new Parsed(printed.toString(), print(program), parser.getNumErrors());
+    } finally {
+      System.setOut(out);
+    }
+  }
+
+  // the program as ASTPrinter prints it, which it may not manage after a parsing error
+  private static String print(Program program) {
+    StringWriter sw = new StringWriter();
+    PrintWriter writer = new PrintWriter(sw);
+    try {
+      new ASTPrinter(writer).visit(program);
+    } catch (RuntimeException e) {
+      writer.print(" stopped: " + e);
+    }
+    writer.flush();
+    return sw.toString();
+  }
+
+  // lexing messages are not printed, they are the same whichever way the tokens are parsed
+  private static TokenStream lex(String text) {
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    try {
+      return TokenStream.lex(new Tokeniser(new Scanner(text)));
+    } finally {
+      System.setOut(out);
+    }
+  }
+}
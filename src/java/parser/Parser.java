@@ -1,12 +1,23 @@
 package parser;
 
 import ast.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import lexer.HeaderCache;
 import lexer.Token;
 import lexer.Token.Category;
+import lexer.TokenStream;
 import lexer.Tokeniser;
 import util.CompilerPass;
 
@@ -17,13 +28,106 @@ public class Parser extends CompilerPass {
 
   private Token token;
 
-  private Queue<Token> buffer = new LinkedList<>();
+  /*
+   * Circular lookahead buffer holding the next `buffered` tokens, starting at ring[head] and
+   * wrapping around (the capacity is a power of two). The grammar never looks more than 4 tokens
+   * ahead, so the ring does not grow in practice.
+   */
+  private Token[] ring = new Token[8];
+  private int head = 0;
+  private int buffered = 0;
+
   List<Integer> dimensions = new ArrayList<>();
 
   private final Tokeniser tokeniser;
 
+  // when parsing an already lexed stream, index of the next token to consume
+  private final TokenStream stream;
+  private int next;
+
+  /*
+   * File being parsed when #include "..." directives are resolved, null when they are skipped. The
+   * headers already included in this translation unit are shared with the parsers of the headers,
+   * each header is included at most once.
+   */
+  private final File source;
+  private final Set<Path> included;
+
+  // number of enclosing braces (blocks, struct and class bodies), selects the recovery strategy
+  private int nesting = 0;
+
+  // when not null, the top-level declarations of the stream are parsed on this pool, in groups of
+  // at least minGroup tokens
+  private final ForkJoinPool pool;
+  private final int minGroup;
+
+  // the types of the program, shared with the parsers of its headers and declarations
+  private final Types types;
+
   public Parser(Tokeniser tokeniser) {
+    this(tokeniser, null);
+  }
+
+  /*
+   * Same as above, but #include "file" directives are resolved relative to the directory of the
+   * source file and the declarations of the header are added in front of the program's. Headers are
+   * lexed through HeaderCache.INSTANCE.
+   */
+  public Parser(Tokeniser tokeniser, File source) {
     this.tokeniser = tokeniser;
+    this.stream = null;
+    this.source = source;
+    this.included = new HashSet<>();
+    this.pool = null;
+    this.minGroup = DEFAULT_MIN_GROUP;
+    this.types = new Types();
+  }
+
+  /*
+   * Parses a stream that has already been lexed (it must end with EOF). Lookahead is a plain index
+   * into the stream, and tokens are only materialised as they are looked at.
+   */
+  public Parser(TokenStream stream) {
+    this(stream, null, new HashSet<>(), null, DEFAULT_MIN_GROUP, new Types());
+  }
+
+  // parses a stream whose types go to an existing table, for IncrementalParser
+  Parser(TokenStream stream, Types types) {
+    this(stream, null, new HashSet<>(), null, DEFAULT_MIN_GROUP, types);
+  }
+
+  /*
+   * Same as above, but the top-level declarations are parsed in parallel on the pool. The program
+   * and the errors are the same as when parsing sequentially.
+   */
+  public Parser(TokenStream stream, ForkJoinPool pool) {
+    this(stream, pool, DEFAULT_MIN_GROUP);
+  }
+
+  // same as above, with groups of at least minGroup tokens, so that small inputs are split too
+  public Parser(TokenStream stream, ForkJoinPool pool, int minGroup) {
+    this(stream, null, new HashSet<>(), pool, minGroup, new Types());
+  }
+
+  private Parser(
+      TokenStream stream,
+      File source,
+      Set<Path> included,
+      ForkJoinPool pool,
+      int minGroup,
+      Types types) {
+    this.tokeniser = null;
+    this.stream = stream;
+    this.source = source;
+    this.included = included;
+    this.pool = pool;
+    this.minGroup = Math.max(1, minGroup);
+    this.types = types;
+  }
+
+  // number of headers included in the translation unit so far, for IncludeCheck
+  int includedCount() {
+    return included.size();
   }
 
   public Program parse() {
@@ -33,28 +137,73 @@ public class Parser extends CompilerPass {
     return parseProgram();
   }
 
-  // private int error = 0;
-  private Token lastErrorToken;
+  /*
+   * Parses the top-level element starting at token index start of the stream: the #include
+   * directives when start is 0 and there are some, a declaration otherwise. Returns the declaration,
+   * or null for the includes or after an error; tokenIndex() is then the index of the first token
+   * after the element. Used by IncrementalParser, which parses a program one declaration at a time.
+   */
+  Decl parseTopLevel(int start) {
+    next = start;
+    nextToken();
+    if (start == 0 && accept(Category.INCLUDE)) {
+      parseIncludes(new ArrayList<>());
+      return null;
+    }
+    return parseDecl();
+  }
+
+  // index in the stream of the current token
+  int tokenIndex() {
+    return next - 1;
+  }
 
-  private void error(Category... expected) {
+  /*
+   * After an error, further errors are not reported until a token has been matched by expect()
+   * again: whatever goes wrong while the parser resynchronises is a consequence of the first error.
+   * After MAX_ERRORS errors the parser gives up and behaves as if the input ended there.
+   */
+  static final int MAX_ERRORS = 100;
 
-    if (lastErrorToken == token) {
-      // skip this error, same token causing trouble
-      return;
-    }
+  private boolean recovering = false;
+  private boolean gaveUp = false;
 
-    StringBuilder sb = new StringBuilder();
-    String sep = "";
-    for (Category e : expected) {
-      sb.append(sep);
-      sb.append(e);
-      sep = "|";
+  /*
+   * When parsing a single declaration for parseInParallel, the error messages are kept here instead
+   * of being printed, with whether a token was matched by expect() before each of them.
+   */
+  private List<String> messages;
+  private int leadingErrors = 0; // errors before the first matched token
+  private boolean matched = false;
+
+  private void error(Category expected) {
+    error(expected.toString());
+  }
+
+  private void error(CategorySet expected) {
+    error(expected.text);
+  }
+
+  private void error(String expected) {
+    if (recovering || gaveUp) return;
+
+    String msg =
+        "Parsing error: expected (" + expected + ") found (" + token + ") at " + token.position();
+    if (messages == null) {
+      System.out.println(msg);
+    } else {
+      messages.add(msg);
+      if (!matched) leadingErrors++;
     }
-    String msg = "Parsing error: expected (" + sb + ") found (" + token + ") at " + token.position;
-    System.out.println(msg);
 
     incError();
-    lastErrorToken = token;
+    recovering = true;
+    if (getNumErrors() >= MAX_ERRORS) {
+      // a parallel parse that reaches the cap redoes this part sequentially, which prints this
+      if (messages == null) System.out.println("Parsing: too many errors, giving up");
+      gaveUp = true;
+      token = new Token(Category.EOF, token.line, token.column);
+    }
   }
 
   /*
@@ -62,25 +211,41 @@ public class Parser extends CompilerPass {
    * i should be >= 1
    */
   private Token lookAhead(int i) {
-    // ensures the buffer has the element we want to look ahead
-    while (buffer.size() < i) buffer.add(tokeniser.nextToken());
+    if (gaveUp) return token;
+    if (stream != null) return stream.token(Math.min(next + i - 1, stream.size() - 1));
 
-    int cnt = 1;
-    for (Token t : buffer) {
-      if (cnt == i) return t;
-      cnt++;
+    // ensures the buffer has the element we want to look ahead
+    if (i > ring.length) growRing(i);
+    while (buffered < i) {
+      ring[(head + buffered) & (ring.length - 1)] = tokeniser.nextToken();
+      buffered++;
     }
+    return ring[(head + i - 1) & (ring.length - 1)];
+  }
 
-    assert false; // should never reach this
-    return tokeniser.nextToken();
+  private void growRing(int min) {
+    Token[] bigger = new Token[Integer.highestOneBit(min - 1) << 1];
+    for (int k = 0; k < buffered; k++) bigger[k] = ring[(head + k) & (ring.length - 1)];
+    ring = bigger;
+    head = 0;
   }
 
   /*
    * Consumes the next token from the tokeniser or the buffer if not empty.
    */
   private void nextToken() {
-    if (!buffer.isEmpty()) token = buffer.remove();
-    else {
+    if (gaveUp) {
+      // token stays the EOF put in place when giving up
+    } else if (stream != null) {
+      // the stream ends with EOF, which is returned again once reached
+      token = stream.token(Math.min(next, stream.size() - 1));
+      if (next < stream.size()) next++;
+    } else if (buffered > 0) {
+      token = ring[head];
+      ring[head] = null;
+      head = (head + 1) & (ring.length - 1);
+      buffered--;
+    } else {
       token = tokeniser.nextToken();
     }
   }
@@ -88,28 +253,113 @@ public class Parser extends CompilerPass {
   /*
    * If the current token is equals to the expected one, then skip it, otherwise report an error.
    */
-  private Token expect(Category... expected) {
-    for (Category e : expected) {
-      if (e == token.category) {
-        Token ret = token;
-        nextToken();
-        return ret;
-      }
+  private Token expect(Category expected) {
+    if (token.category != expected) {
+      error(expected);
+      return token;
     }
-    error(expected);
-    return token;
+    recovering = false;
+    matched = true;
+    Token ret = token;
+    nextToken();
+    return ret;
+  }
+
+  private Token expect(CategorySet expected) {
+    if (!expected.contains(token.category)) {
+      error(expected);
+      return token;
+    }
+    recovering = false;
+    matched = true;
+    Token ret = token;
+    nextToken();
+    return ret;
   }
 
   /*
-   * Returns true if the current token is equals to any of the expected ones.
+   * Returns true if the current token is equals to the expected one.
    */
-  private boolean accept(Category... expected) {
-    for (Category e : expected) {
-      if (e == token.category) return true;
+  private boolean accept(Category expected) {
+    return token.category == expected;
+  }
+
+  /*
+   * Returns true if the current token is in the expected set.
+   */
+  private boolean accept(CategorySet expected) {
+    return expected.contains(token.category);
+  }
+
+  /*
+   * A set of token categories, stored as a bitmask over their ordinals (there are fewer than 64),
+   * together with its text in error messages: the categories in the order they were listed,
+   * separated by '|'. The sets are built once below, so accept and expect neither allocate nor loop.
+   */
+  private static final class CategorySet {
+    private final long mask;
+    private final String text;
+
+    CategorySet(Category... categories) {
+      long m = 0;
+      StringBuilder sb = new StringBuilder();
+      for (Category c : categories) {
+        m |= 1L << c.ordinal();
+        if (sb.length() > 0) sb.append('|');
+        sb.append(c);
+      }
+      this.mask = m;
+      this.text = sb.toString();
+    }
+
+    boolean contains(Category c) {
+      return (mask & (1L << c.ordinal())) != 0;
     }
-    return false;
   }
 
+  // FIRST(type), which is also FIRST of a declaration or a local variable declaration
+  private static final CategorySet FIRST_TYPE =
+      new CategorySet(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT, Category.CLASS);
+  // the types allowed for struct fields, and those listed when a sizeof or a struct lacks one
+  private static final CategorySet FIRST_FIELD_TYPE =
+      new CategorySet(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT);
+  private static final CategorySet BASE_TYPES =
+      new CategorySet(Category.INT, Category.CHAR, Category.VOID);
+  // listed when a top-level declaration does not start with a type
+  private static final CategorySet EXPECTED_DECL =
+      new CategorySet(Category.STRUCT, Category.INT, Category.CHAR, Category.VOID);
+  // what may follow the parameters of a function: a body or a ';'
+  private static final CategorySet FOLLOW_PARAMS = new CategorySet(Category.LBRA, Category.SC);
+  private static final CategorySet FIRST_UNARY =
+      new CategorySet(
+          Category.PLUS, Category.MINUS, Category.ASTERISK, Category.AND, Category.SIZEOF);
+  private static final CategorySet UNARY_OPERATORS =
+      new CategorySet(Category.PLUS, Category.MINUS, Category.ASTERISK, Category.AND);
+  private static final CategorySet SIGNS = new CategorySet(Category.PLUS, Category.MINUS);
+  private static final CategorySet FIRST_PRIMARY =
+      new CategorySet(
+          Category.INT_LITERAL,
+          Category.CHAR_LITERAL,
+          Category.STRING_LITERAL,
+          Category.IDENTIFIER,
+          Category.LPAR,
+          Category.ASTERISK,
+          Category.AND,
+          Category.SIZEOF,
+          Category.LSBR,
+          Category.DOT);
+  // tokens statement-level recovery stops in front of: they start or end a statement or a block
+  private static final CategorySet STATEMENT_SYNC =
+      new CategorySet(
+          Category.LBRA,
+          Category.RBRA,
+          Category.IF,
+          Category.WHILE,
+          Category.RETURN,
+          Category.BREAK,
+          Category.CONTINUE,
+          Category.EOF);
+
   /*
    *  ===================== PROGRAM PARSING =====================
    * program    ::= (include)* (structdecl | vardecl | fundecl | fundef)* EOF
@@ -121,10 +371,15 @@ public class Parser extends CompilerPass {
    * program    ::= (include)* (classdecl | structdecl | vardecl | fundecl | fundef)* EOF # Part V
    */
   private Program parseProgram() {
-    // includes are ignored, so does not need to return an AST node
-    parseIncludes();
     // decls is the list of declarations in the program (Program ::= (Decl)*)
     List<Decl> decls = new ArrayList<>();
+    if (pool != null) {
+      // leaves the parser where sequential parsing must continue, on EOF if all went well
+      parseInParallel(decls);
+    } else {
+      // the declarations of resolved includes come first, otherwise includes are ignored
+      parseIncludes(decls);
+    }
     // loop through the tokens until we reach the end of file
     while (!accept(Category.EOF)) {
       Decl decl = parseDecl();
@@ -135,7 +390,116 @@ public class Parser extends CompilerPass {
     // expect the end of file
     expect(Category.EOF);
     // return the program AST node
-    return new Program(decls);
+    return new Program(decls, types);
+  }
+
+  /*
+   * ===================== PARALLEL PARSING =====================
+   * The stream is cut into groups of top-level declarations at boundaries found by brace matching:
+   * after a ';' outside braces, or after a '}' that closes all braces and is not followed by ';'
+   * (which ends a struct declaration). Each group is parsed on the pool, one declaration at a time
+   * with a fresh parser, from its first boundary until the declaration that crosses into the next
+   * group. Boundaries are only guesses (a '}' missing in the input shifts them): the results are
+   * then assembled sequentially, starting each declaration where the previous one really ended,
+   * and any declaration that no group parsed from that token is parsed on the spot.
+   *
+   * A fresh parser reports errors as if it was not recovering from an earlier error, the assembly
+   * drops the errors the sequential parser would not have reported and counts errors towards
+   * MAX_ERRORS. If the cap is reached, parsing continues sequentially from that declaration.
+   */
+
+  // below this many tokens per group, parallel parsing is not worth it
+  private static final int DEFAULT_MIN_GROUP = 1 << 14;
+
+  // the result of parsing the top-level element that starts at token start
+  private record TopLevel(
+      int start,
+      int end,
+      Decl decl,
+      List<String> messages,
+      int leadingErrors,
+      boolean matched,
+      boolean recovering,
+      boolean gaveUp) {}
+
+  private void parseInParallel(List<Decl> decls) {
+    int[] starts = groupStarts();
+    List<ForkJoinTask<List<TopLevel>>> tasks = new ArrayList<>();
+    for (int g = 0; g < starts.length; g++) {
+      int start = starts[g];
+      int end = g + 1 < starts.length ? starts[g + 1] : stream.size();
+      tasks.add(pool.submit(() -> parseGroup(start, end)));
+    }
+    Map<Integer, TopLevel> parsed = new HashMap<>();
+    for (ForkJoinTask<List<TopLevel>> task : tasks) {
+      for (TopLevel t : task.join()) parsed.put(t.start(), t);
+    }
+
+    int i = 0;
+    while (stream.category(i) != Category.EOF) {
+      TopLevel t = parsed.get(i);
+      if (t == null) t = parseAlone(i);
+      // a sequential parser still recovering from an earlier error does not report these
+      int skipped = recovering ? t.leadingErrors() : 0;
+      if (t.gaveUp() || getNumErrors() + t.messages().size() - skipped >= MAX_ERRORS) break;
+      for (int m = skipped; m < t.messages().size(); m++) {
+        System.out.println(t.messages().get(m));
+        incError();
+      }
+      recovering = t.matched() ? t.recovering() : recovering || !t.messages().isEmpty();
+      if (t.decl() != null) decls.add(t.decl());
+      i = t.end();
+    }
+
+    next = i;
+    nextToken();
+    if (i == 0) parseIncludes(decls);
+  }
+
+  private List<TopLevel> parseGroup(int start, int end) {
+    List<TopLevel> group = new ArrayList<>();
+    int i = start;
+    while (i < end && stream.category(i) != Category.EOF) {
+      TopLevel t = parseAlone(i);
+      group.add(t);
+      i = t.end();
+    }
+    return group;
+  }
+
+  private TopLevel parseAlone(int start) {
+    Parser parser = new Parser(stream, types);
+    parser.messages = new ArrayList<>();
+    Decl decl = parser.parseTopLevel(start);
+    return new TopLevel(
+        start,
+        parser.tokenIndex(),
+        decl,
+        parser.messages,
+        parser.leadingErrors,
+        parser.matched,
+        parser.recovering,
+        parser.gaveUp);
+  }
+
+  // first token of each group: 0, then the first boundary at or after each multiple of the size
+  private int[] groupStarts() {
+    int count = Math.max(1, Math.min(pool.getParallelism() * 4, stream.size() / minGroup));
+    int size = stream.size() / count;
+    int[] starts = new int[count];
+    int n = 1;
+    int depth = 0;
+    for (int i = 0; i < stream.size() - 1 && n < count; i++) {
+      Category c = stream.category(i);
+      if (c == Category.LBRA) depth++;
+      else if (c == Category.RBRA && depth > 0) depth--;
+      boolean boundary =
+          depth == 0
+              && (c == Category.SC
+                  || (c == Category.RBRA && stream.category(i + 1) != Category.SC));
+      if (boundary && i + 1 >= n * size) starts[n++] = i + 1;
+    }
+    return Arrays.copyOf(starts, n);
   }
 
   /*
@@ -145,12 +509,39 @@ public class Parser extends CompilerPass {
    * include    ::= "#include" STRING_LITERAL
    * The include directive is not part of the AST
    */
-  private void parseIncludes() {
+  private void parseIncludes(List<Decl> decls) {
     if (accept(Category.INCLUDE)) {
       nextToken();
-      expect(Category.STRING_LITERAL);
-      parseIncludes();
+      Token name = expect(Category.STRING_LITERAL);
+      if (source != null && name.category == Category.STRING_LITERAL) include(name, decls);
+      parseIncludes(decls);
+    }
+  }
+
+  // the runtime library header, its functions are built into the compiler
+  private static final String STDLIB_HEADER = "minic-stdlib.h";
+
+  private void include(Token name, List<Decl> decls) {
+    if (name.data.equals(STDLIB_HEADER)) return;
+
+    File file = new File(source.getAbsoluteFile().getParentFile(), name.data);
+    HeaderCache.Header header;
+    try {
+      header = HeaderCache.INSTANCE.get(file);
+    } catch (IOException e) {
+      System.out.println(
+          "Parsing error: cannot read include file (" + name.data + ") at " + name.position());
+      incError();
+      return;
     }
+    if (!included.add(header.path)) return;
+
+    for (String msg : header.errors) System.out.println(msg + " in " + name.data);
+    for (int i = 0; i < header.errorCount; i++) incError();
+    Parser parser =
+        new Parser(header.tokens, header.path.toFile(), included, null, DEFAULT_MIN_GROUP, types);
+    decls.addAll(parser.parse().decls);
+    for (int i = 0; i < parser.getNumErrors(); i++) incError();
   }
 
   /*
@@ -172,7 +563,7 @@ public class Parser extends CompilerPass {
 
     */
     // if the token is a struct or an int or a char or a void
-    if (accept(Category.CLASS, Category.STRUCT, Category.INT, Category.CHAR, Category.VOID)) {
+    if (accept(FIRST_TYPE)) {
 
       // Handle class declarations
       /*
@@ -227,7 +618,7 @@ public class Parser extends CompilerPass {
       // System.out.println("Parsing variable declaration");
       return parseVarDecl();
     }
-    error(Category.STRUCT, Category.INT, Category.CHAR, Category.VOID);
+    error(EXPECTED_DECL);
     recovery();
     return null;
   }
@@ -241,7 +632,7 @@ public class Parser extends CompilerPass {
     // expect the token to be a struct
     expect(Category.STRUCT);
     // return the struct type as AST node (string is the name of the declared struct type)
-    return new StructType(expect(Category.IDENTIFIER).data);
+    return types.struct(expect(Category.IDENTIFIER).data);
   }
 
   /*
@@ -263,8 +654,8 @@ public class Parser extends CompilerPass {
   private Type parseType() {
     Type baseType;
     // Check the type ("int" | "char" | "void" | structtype ) ("*")*
-    if (accept(Category.INT, Category.CHAR, Category.VOID)) {
-      Token typeToken = expect(Category.INT, Category.CHAR, Category.VOID);
+    if (accept(BASE_TYPES)) {
+      Token typeToken = expect(BASE_TYPES);
       // return the base type
       switch (typeToken.category) {
         case INT:
@@ -291,9 +682,9 @@ public class Parser extends CompilerPass {
       // consume class
       nextToken();
       String cname = expect(Category.IDENTIFIER).data;
-      baseType = new ClassType(cname);
+      baseType = types.classType(cname);
     } else {
-      error(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT, Category.CLASS);
+      error(FIRST_TYPE);
       recovery();
       return BaseType.UNKNOWN;
     }
@@ -304,7 +695,7 @@ public class Parser extends CompilerPass {
      */
     while (accept(Category.ASTERISK)) {
       nextToken();
-      baseType = new PointerType(baseType);
+      baseType = types.pointer(baseType);
     }
     return baseType;
   }
@@ -318,11 +709,12 @@ public class Parser extends CompilerPass {
   private StructTypeDecl parseStructDecl(Type structType) {
     // expect the left brace ["{"]
     expect(Category.LBRA);
+    nesting++;
     // varDecls is the list of variable declarations in the struct
     List<VarDecl> varDecls = new ArrayList<>();
     // Must have at least one variable declaration
-    if (!accept(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT)) {
-      error(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT);
+    if (!accept(FIRST_FIELD_TYPE)) {
+      error(FIRST_FIELD_TYPE);
     }
     // while we have not reached the right brace ["}"]
     do {
@@ -337,7 +729,8 @@ public class Parser extends CompilerPass {
       } else {
         varDecls.add(parseVarDecl());
       }
-    } while (accept(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT));
+    } while (accept(FIRST_FIELD_TYPE));
+    nesting--;
     // expect the right brace ["}"]
     expect(Category.RBRA);
     // expect the semicolon [";"]
@@ -371,10 +764,11 @@ public class Parser extends CompilerPass {
 
     // class body
     expect(Category.LBRA);
+    nesting++;
 
     // vardecl
     List<VarDecl> fields = new ArrayList<>();
-    while (accept(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT, Category.CLASS)) {
+    while (accept(FIRST_TYPE)) {
       // lookAhead(1) is the IDENT, lookAhead(2) is what follows
       if (lookAhead(2).category == Category.LPAR) {
         break;
@@ -384,7 +778,7 @@ public class Parser extends CompilerPass {
 
     // Methods
     List<FunDef> methods = new ArrayList<>();
-    while (accept(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT, Category.CLASS)) {
+    while (accept(FIRST_TYPE)) {
       // Parse the return type and name
       Type returnType = parseType();
       Token nameMethod = expect(Category.IDENTIFIER);
@@ -393,13 +787,14 @@ public class Parser extends CompilerPass {
       if (decl instanceof FunDef fd) {
         methods.add(fd);
       } else {
-        // declaration instead of a definition will show erorr
+        // declaration instead of a definition will show erorr, it has been parsed entirely so
+        // there is nothing to recover from
         error(Category.LBRA);
-        recovery();
       }
     }
 
     // End body
+    nesting--;
     expect(Category.RBRA);
 
     // AST node
@@ -418,18 +813,25 @@ public class Parser extends CompilerPass {
     String varName = expect(Category.IDENTIFIER).data;
     while (accept(Category.LSBR)) {
       nextToken();
-      int size = Integer.parseInt(expect(Category.INT_LITERAL).data);
+      int size = parseArraySize();
       List<Integer> dimensions123 = new ArrayList<>();
       dimensions123.add(size);
       expect(Category.RSBR);
       // new array with list of int literals ,passsize to the list
 
-      type = new ArrayType(type, dimensions123, size);
+      type = types.array(type, dimensions123, size);
     }
     expect(Category.SC);
     return new VarDecl(type, varName);
   }
 
+  // the INT_LITERAL size of an array dimension, 0 after reporting an error if there is none
+  private int parseArraySize() {
+    Token size = expect(Category.INT_LITERAL);
+    if (size.category != Category.INT_LITERAL) return 0;
+    return Integer.parseInt(size.data);
+  }
+
   /*
    * ===================== FUNCTION PARSING =====================
    * function declaration | function definition
@@ -457,7 +859,7 @@ public class Parser extends CompilerPass {
       expect(Category.SC);
       return new FunDecl(type, id.data, params);
     } else {
-      error(Category.LBRA, Category.SC);
+      error(FOLLOW_PARAMS);
       recovery();
       return null;
     }
@@ -484,10 +886,10 @@ public class Parser extends CompilerPass {
           // list of int literals
           // size is a list of int literals
           // size ::= INT_LITERAL
-          int size = Integer.parseInt(expect(Category.INT_LITERAL).data);
+          int size = parseArraySize();
           dimensions.add(size);
           expect(Category.RSBR);
-          paramType = new ArrayType(paramType, dimensions, size);
+          paramType = types.array(paramType, dimensions, size);
         }
         params.add(new VarDecl(paramType, paramName));
         // check if there's a comma for more parameters
@@ -509,28 +911,100 @@ public class Parser extends CompilerPass {
    * Block ::= VarDecl* Stmt*
    * Block statement (starts with { and end with } in the source code)
    * Block      ::= VarDecl* Stmt*
+   *
+   * Blocks, while and if statements nest through their bodies. They are not parsed by one Java call
+   * per nesting level (a few thousand levels would overflow the stack) but by parseStatements, with
+   * an explicit stack of the enclosing statements that are still waiting for a body or an element.
    */
   private Block parseBlock() {
-    expect(Category.LBRA); // Consume '{'
+    ArrayDeque<StmtFrame> stack = new ArrayDeque<>();
+    openBlock(stack);
+    return (Block) parseStatements(stack, null);
+  }
+
+  /*
+   * A block, while or if statement whose header has been parsed: a block collects its elements, a
+   * while statement waits for its body, an if statement for its then and else branches.
+   */
+  private static final class StmtFrame {
+    final Category kind; // LBRA, WHILE or IF
+    final Expr condition;
+    final List<VarDecl> vds;
+    final List<Stmt> stmts;
+    Stmt thenBranch;
+
+    StmtFrame(Category kind, Expr condition) {
+      this.kind = kind;
+      this.condition = condition;
+      this.vds = kind == Category.LBRA ? new ArrayList<>() : null;
+      this.stmts = kind == Category.LBRA ? new ArrayList<>() : null;
+    }
+  }
 
-    // Store VarDecl
-    List<VarDecl> vds = new ArrayList<>();
-    // store statements
-    List<Stmt> stmts = new ArrayList<>(); // Store Stmt
+  /*
+   * Completes the statements on the stack, starting with stmt (null when the statement on top of
+   * the stack needs its next element or body), and returns the outermost one.
+   */
+  private Stmt parseStatements(ArrayDeque<StmtFrame> stack, Stmt stmt) {
+    while (true) {
+      if (stmt == null) {
+        StmtFrame top = stack.peek();
+        if (top.kind != Category.LBRA) {
+          // the body of a while, or a branch of an if
+          stmt = startStmt(stack);
+        } else if (!accept(Category.RBRA) && !accept(Category.EOF)) {
+          if (accept(FIRST_TYPE)) {
+            top.vds.add(parseVarDecl());
+          } else {
+            stmt = startStmt(stack);
+          }
+        } else {
+          stack.pop();
+          nesting--;
+          expect(Category.RBRA);
+          stmt = new Block(top.vds, top.stmts);
+        }
+        continue;
+      }
 
-    while (!accept(Category.RBRA) && !accept(Category.EOF)) {
-      if (accept(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT, Category.CLASS)) {
-        // elements.add(parseVarDecl());
-        vds.add(parseVarDecl());
-      } else {
-        // elements.add(parseStmt());
-        stmts.add(parseStmt());
+      // stmt is complete, hand it to the statement it is part of
+      StmtFrame top = stack.peek();
+      if (top == null) return stmt;
+      switch (top.kind) {
+        case LBRA -> {
+          top.stmts.add(stmt);
+          stmt = null;
+        }
+        case WHILE -> {
+          stack.pop();
+          stmt = new While(top.condition, stmt);
+        }
+        default -> {
+          if (top.thenBranch == null) {
+            top.thenBranch = stmt;
+            // optional else body
+            if (accept(Category.ELSE)) {
+              // Consume 'else'
+              nextToken();
+              stmt = null;
+            } else {
+              stack.pop();
+              stmt = new If(top.condition, top.thenBranch, null);
+            }
+          } else {
+            stack.pop();
+            stmt = new If(top.condition, top.thenBranch, stmt);
+          }
+        }
       }
     }
+  }
 
-    expect(Category.RBRA);
-    // return new Block(elements);
-    return new Block(vds, stmts);
+  // Block      ::= VarDecl* Stmt*
+  private void openBlock(ArrayDeque<StmtFrame> stack) {
+    expect(Category.LBRA); // Consume '{'
+    nesting++;
+    stack.push(new StmtFrame(Category.LBRA, null));
   }
 
   /*
@@ -540,23 +1014,60 @@ public class Parser extends CompilerPass {
   * | Break | ExprStmt
   * Stmt       ::= Block | While | If | Return | Continue | Break | ExprStmt
   * // An expression statement (e.g. x+2;)
-
+  *
+  * Parses the statement at the current token if it does not nest. Otherwise parses the header of
+  * the block, while or if statement, pushes it on the stack and returns null.
   */
-  private Stmt parseStmt() {
-    return switch (token.category) {
-      // if the token is a return then parse the return statement
-      // return statement : (the Expr is optional)
-      // Return     ::= [Expr]
-      case RETURN -> parseReturnStmt();
+  private Stmt startStmt(ArrayDeque<StmtFrame> stack) {
+    switch (token.category) {
       // if the token is a while then parse the while statement
       // While      ::= Expr Stmt
       // While loop statement : while (Expr) Stmt;
-      case WHILE -> parseWhileStmt();
+      case WHILE -> {
+        stack.push(new StmtFrame(Category.WHILE, parseCondition(Category.WHILE)));
+        return null;
+      }
       // if the token is an if then parse the if statement
       // If         ::= Expr Stmt [Stmt]
       // If statement: if (Expr) Stmt1 else Stmt2; (if the second Stmt is null, this means there is
       // no else part)
-      case IF -> parseIfStmt();
+      case IF -> {
+        stack.push(new StmtFrame(Category.IF, parseCondition(Category.IF)));
+        return null;
+      }
+      // if the token is a left brace then parse
+      // Block      ::= VarDecl* Stmt*
+      // Block statement (starts with { and end with } in the source code)
+      case LBRA -> {
+        openBlock(stack);
+        return null;
+      }
+      default -> {
+        return parseSimpleStmt();
+      }
+    }
+  }
+
+  // parser for the header of a while or if statement - keyword "(" exp ")"
+  private Expr parseCondition(Category keyword) {
+    // Consume 'while' or 'if'
+    expect(keyword);
+    // Expect '('
+    expect(Category.LPAR);
+    // Parse condition
+    Expr condition = parseExpr();
+    // Expect ')'
+    expect(Category.RPAR);
+    return condition;
+  }
+
+  // statements without a statement inside
+  private Stmt parseSimpleStmt() {
+    return switch (token.category) {
+      // if the token is a return then parse the return statement
+      // return statement : (the Expr is optional)
+      // Return     ::= [Expr]
+      case RETURN -> parseReturnStmt();
       // if the token is a continue then parse the continue statement
       // Continue   ::= ;
       // Continue statement (nothing stored)
@@ -573,10 +1084,6 @@ public class Parser extends CompilerPass {
         expect(Category.SC);
         yield new Break();
       }
-      // if the token is a left brace then parse
-      // Block      ::= VarDecl* Stmt*
-      // Block statement (starts with { and end with } in the source code)
-      case LBRA -> parseBlock();
       // if the token is  else then parse the expression statement
       case ELSE -> {
         error(Category.IF);
@@ -589,46 +1096,6 @@ public class Parser extends CompilerPass {
     };
   }
 
-  // parser [While] statement - "while" "(" exp ")" stmt
-  // While      ::= Expr Stmt
-  private Stmt parseWhileStmt() {
-    // Consume 'while'
-    expect(Category.WHILE);
-    // Expect '('
-    expect(Category.LPAR);
-    // Parse condition
-    Expr condition = parseExpr();
-    // Expect ')'
-    expect(Category.RPAR);
-    // Parse body
-    return new While(condition, parseStmt());
-  }
-
-  // parser [If] statement - "if" "(" exp ")" stmt ["else" stmt]
-  // If         ::= Expr Stmt [Stmt]
-  private Stmt parseIfStmt() {
-    // Consume 'if'
-    expect(Category.IF);
-    // Expect '('
-    expect(Category.LPAR);
-    // Parse condition
-    Expr condition = parseExpr();
-    // Expect ')'
-    expect(Category.RPAR);
-    // Parse 'if' body
-    Stmt thenBranch = parseStmt();
-    // Parse 'else' body
-    // optional else body
-    Stmt elseBranch = null;
-    if (accept(Category.ELSE)) {
-      // Consume 'else'
-      nextToken();
-      // Parse 'else' body
-      elseBranch = parseStmt();
-    }
-    return new If(condition, thenBranch, elseBranch);
-  }
-
   // parser [return] statement - "return" [exp] ";"
   // Return     ::= [Expr]
   private Stmt parseReturnStmt() {
@@ -685,201 +1152,188 @@ public class Parser extends CompilerPass {
   // Assignment should be right to left associative
   // Assignment ::= Expr "=" Expr
   private Expr parseExpr() {
-    // Parse the left-hand side of the operator
-    Expr lhs = parseLogicalOrExpr();
-    // Assignment ::= Expr "=" Expr
-    if (accept(Category.ASSIGN)) {
-      nextToken();
-      // Recursive right hand side of the operator
-      Expr rhs = parseExpr();
-      // Return the assignment AST node
-      return new Assign(lhs, rhs);
-    }
-    // Return the left-hand side of the operator
-    return lhs;
+    int base = depth;
+    Expr value = descend(Goal.EXPR, 1);
+    while (depth > base) value = resume(frames[depth - 1], value);
+    return value;
   }
 
-  // Logical OR expression left-to-right associativity
-  // LogicalOr  ::= LogicalAnd ("||" LogicalAnd)*
-  // parser for the logical OR expression - exp "||" exp
-  private Expr parseLogicalOrExpr() {
-    // Parse the left-hand side of the operator
-    Expr expr = parseLogicalAndExpr();
-    // exp "||" exp
-    // loop through the logical OR expression
-    while (accept(Category.LOGOR)) {
-      nextToken();
-      // parse the right hand side of the operator
-      expr = new BinOp(expr, Op.OR, parseLogicalAndExpr());
-    }
-    return expr;
-  }
+  /*
+   * Binary operators, all left-to-right associative, from the loosest to the tightest binding:
+   *   1  LogicalOr      "||"
+   *   2  LogicalAnd     "&&"
+   *   3  Equality       "==" | "!="
+   *   4  Relational     "<" | ">" | "<=" | ">="
+   *   5  Additive       "+" | "-"
+   *   6  Multiplicative "*" | "/" | "%"
+   * Indexed by token category ordinal, 0 for tokens that are not binary operators.
+   */
+  private static final int[] PRECEDENCE = new int[Category.values().length];
+  private static final Op[] BINARY_OP = new Op[Category.values().length];
 
-  // Parses a logical AND expression. [exp ::= exp "&&" exp]
-  // LogicalAnd ::= Equality ("&&" Equality)*
-  // left-to-right associativity
-  private Expr parseLogicalAndExpr() {
-    // Parse the left-hand side of the operator
-    Expr expr = parseEqualityExpr();
-    // loop through the logical AND expression
-    while (accept(Category.LOGAND)) {
-      nextToken();
-      // Parse the right-hand side of the operator
-      expr = new BinOp(expr, Op.AND, parseEqualityExpr());
-    }
-    return expr;
+  private static void binary(Category category, int precedence, Op op) {
+    PRECEDENCE[category.ordinal()] = precedence;
+    BINARY_OP[category.ordinal()] = op;
   }
 
-  // Parses an equality expression. [ exp ::= exp ("==" | "!=") exp]
-  // left-to-right associativity
-  private Expr parseEqualityExpr() {
-    // Parse the left-hand side of the operator
-    Expr expr = parseRelationalExpr();
-    // Parse the right-hand side of the operator
-    while (accept(Category.EQ, Category.NE)) {
-      if (token.category == Category.EQ) {
-        nextToken();
-        expr = new BinOp(expr, Op.EQ, parseRelationalExpr());
-      } else {
-        nextToken();
-        expr = new BinOp(expr, Op.NE, parseRelationalExpr());
-      }
-      // Parse the right-hand side of the operator
-      // expr = new BinOp(expr, op, parseRelationalExpr());
-    }
-    return expr;
+  static {
+    binary(Category.LOGOR, 1, Op.OR);
+    binary(Category.LOGAND, 2, Op.AND);
+    binary(Category.EQ, 3, Op.EQ);
+    binary(Category.NE, 3, Op.NE);
+    binary(Category.LT, 4, Op.LT);
+    binary(Category.GT, 4, Op.GT);
+    binary(Category.LE, 4, Op.LE);
+    binary(Category.GE, 4, Op.GE);
+    binary(Category.PLUS, 5, Op.ADD);
+    binary(Category.MINUS, 5, Op.SUB);
+    binary(Category.ASTERISK, 6, Op.MUL);
+    binary(Category.DIV, 6, Op.DIV);
+    binary(Category.REM, 6, Op.MOD);
   }
 
-  // Parses a relational expression. [exp ::= exp (">" | "<" | ">=" | "<=") exp]
-  private Expr parseRelationalExpr() {
-    Expr expr = parseAdditiveExpr();
-    // Parse the right-hand side of the operator
-    while (accept(Category.LT, Category.GT, Category.LE, Category.GE)) {
-      if (token.category == Category.LT) {
-        nextToken();
-        expr = new BinOp(expr, Op.LT, parseAdditiveExpr());
-      } else if (token.category == Category.GT) {
-        nextToken();
-        expr = new BinOp(expr, Op.GT, parseAdditiveExpr());
-      } else if (token.category == Category.LE) {
-        nextToken();
-        expr = new BinOp(expr, Op.LE, parseAdditiveExpr());
-      } else {
-        nextToken();
-        expr = new BinOp(expr, Op.GE, parseAdditiveExpr());
-      }
-    }
-    return expr;
+  /*
+   * Expressions nest through parentheses, brackets, call arguments, unary operators and
+   * assignments. Instead of one Java call per nesting level (deeply nested input would overflow the
+   * stack), they are parsed by parseExpr with an explicit stack of ExprFrames. Each frame is a
+   * construct that is waiting for the value of a sub-expression; when it gets it, resume either
+   * completes the construct or asks for the next sub-expression. The grammar, and the trees and errors
+   * produced, are those of the following recursive rules, where a Goal is a rule being started:
+   *
+   *   Expr    ::= Binary(1) ["=" Expr]                                      (Assign)
+   *   Binary  ::= Unary (op Binary(precedence of op + 1))*   with precedence of op >= the minimum
+   *   Unary   ::= ("+" | "-" | "*" | "&") Unary | "sizeof" "(" type ")" | Primary Tail
+   *   Primary ::= literal | IDENT [call | "[" Expr "]"] | "new" "class" IDENT "(" ")"
+   *             | "(" type ")" Unary | "(" Expr ")" Tail
+   *             | ("*" | "&" | "+" | "-") Primary | "sizeof" "(" type ")"
+   *             | "[" Expr "]" Primary | "." IDENT Primary
+   *   Tail    ::= ("[" Expr "]" | "." IDENT [call])*
+   *   call    ::= "(" [Expr ("," Expr)*] ")"
+   */
+  private enum Goal {
+    EXPR,
+    BINARY,
+    UNARY,
+    PRIMARY
   }
 
-  // Parses an additive expression. [exp ::= exp ("+" | "-") exp]
-  // left-to-right associativity
-  private Expr parseAdditiveExpr() {
-    Expr expr = parseMultiplicativeExpr();
-    // Parse the right-hand side of the operator
-    while (accept(Category.PLUS, Category.MINUS)) {
-      if (token.category == Category.PLUS) {
-        nextToken();
-        expr = new BinOp(expr, Op.ADD, parseMultiplicativeExpr());
-      } else {
-        nextToken();
-        expr = new BinOp(expr, Op.SUB, parseMultiplicativeExpr());
-      }
-    }
-    return expr;
+  private enum Pending {
+    ASSIGN_LHS, // an expression, waiting for what may be the left side of an assignment
+    ASSIGN_RHS, // the right side of an assignment
+    BINARY, // an operand of a binary operator (op is null for the first one)
+    UNARY, // the operand of a unary operator, or of a prefix operator of a primary expression
+    TAIL, // an expression that may be followed by [index], .field or .method(args)
+    TAIL_INDEX, // an [index] after an expression
+    TAIL_METHOD, // the call after exp.method
+    CALL, // an argument of a function call
+    VAR_INDEX, // the index in IDENT[index]
+    CAST, // the operand of a type cast
+    PAREN, // a parenthesised expression
+    PREFIX_INDEX, // the index in [index] primary
+    PREFIX_INDEXED, // the primary after [index]
+    FIELD // the primary after .field
   }
 
-  // Parses a multiplicative expression. [exp ::= exp ("*" | "/" | "%") exp]
-  // left-to-right associativity
-  private Expr parseMultiplicativeExpr() {
-    // Parse the left-hand side of the operator
-    Expr expr = parseUnaryExpr();
-    while (accept(Category.ASTERISK, Category.DIV, Category.REM)) {
-      if (token.category == Category.ASTERISK) {
-        nextToken();
-        expr = new BinOp(expr, Op.MUL, parseUnaryExpr());
-      } else if (token.category == Category.DIV) {
-        nextToken();
-        expr = new BinOp(expr, Op.DIV, parseUnaryExpr());
-      } else {
-        nextToken();
-        expr = new BinOp(expr, Op.MOD, parseUnaryExpr());
-      }
-    }
-    return expr;
+  private static final class ExprFrame {
+    Pending kind;
+    int minPrecedence; // BINARY
+    Op op; // BINARY
+    Category operator; // UNARY
+    Expr expr; // the expression built so far, or the left side or index waiting to be used
+    Token id; // CALL, VAR_INDEX
+    List<Expr> args; // CALL
+    Type type; // CAST
+    String field; // FIELD
   }
 
-  // Unary operators (*, &, +, -, sizeof, type cast)
-  // Parse a unary expression
-  // Unary operators is right to left associativity
-  private Expr parseUnaryExpr() {
-    if (accept(Category.PLUS, Category.MINUS, Category.ASTERISK, Category.AND, Category.SIZEOF)) {
-      Category op = token.category;
-      nextToken();
-      // Handle sizeof operator
-      if (op == Category.SIZEOF) {
-        expect(Category.LPAR);
-
-        if (!accept(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT, Category.CLASS)) {
-          error(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT);
-          recovery();
-          return new SizeOfExpr(BaseType.UNKNOWN);
-        }
-
-        // handling sizeof
-        Type sizeOfType = parseType();
-        expect(Category.RPAR);
-        return new SizeOfExpr(sizeOfType);
-      }
-
-      // recursively parse the unary expression
-      Expr operand = parseUnaryExpr();
-      switch (op) {
-        case PLUS:
-          return new BinOp(new IntLiteral(0), Op.ADD, operand);
-        case MINUS:
-          return new BinOp(new IntLiteral(0), Op.SUB, operand);
-        case ASTERISK:
-          return new ValueAtExpr(operand);
-        case AND:
-          return new AddressOfExpr(operand);
-        default:
-          error(Category.PLUS, Category.MINUS, Category.ASTERISK, Category.AND);
-          recovery();
-          return new IntLiteral(0);
-      }
+  // the frames of the expression being parsed, frames[depth - 1] is the top; reused between
+  // expressions so that parsing one does not allocate a frame per sub-expression
+  private ExprFrame[] frames = new ExprFrame[16];
+  private int depth = 0;
+
+  private ExprFrame push(Pending kind) {
+    if (depth == frames.length) frames = Arrays.copyOf(frames, depth * 2);
+    ExprFrame frame = frames[depth];
+    if (frame == null) {
+      frame = new ExprFrame();
+      frames[depth] = frame;
     }
-    return parsePostfixExpr();
+    depth++;
+    frame.kind = kind;
+    frame.op = null;
+    frame.expr = null;
+    return frame;
   }
 
-  // psofix operators: () (function call) and  [] array access and . (field access)
-  private Expr parsePostfixExpr() {
-    // we will parse the primary expression
-    Expr expr = parsePrimaryExpr();
-    return parsePostfixExprTail(expr);
+  private void pop() {
+    depth--;
   }
 
-  // parse the function call expression
-  private FunCallExpr parseFuncCallExpr(Token id) {
-    expect(Category.LPAR);
-    List<Expr> args = new ArrayList<>();
-    // Check if there are arguments
-    if (!accept(Category.RPAR)) {
-      args.add(parseExpr());
-      while (accept(Category.COMMA)) {
-        nextToken();
-        args.add(parseExpr());
+  /*
+   * Starts parsing goal: pushes frames for the constructs opened at the current token until an
+   * expression that does not nest (a literal, a variable, ...) is parsed, and returns it.
+   */
+  private Expr descend(Goal goal, int minPrecedence) {
+    while (true) {
+      switch (goal) {
+        case EXPR -> {
+          push(Pending.ASSIGN_LHS);
+          goal = Goal.BINARY;
+          minPrecedence = 1;
+        }
+        case BINARY -> {
+          push(Pending.BINARY).minPrecedence = minPrecedence;
+          goal = Goal.UNARY;
+        }
+        // Unary operators (*, &, +, -, sizeof, type cast)
+        // Unary operators is right to left associativity
+        case UNARY -> {
+          if (!accept(FIRST_UNARY)) {
+            // psofix operators: () (function call) and  [] array access and . (field access)
+            push(Pending.TAIL);
+            goal = Goal.PRIMARY;
+          } else {
+            Category op = token.category;
+            nextToken();
+            // Handle sizeof operator
+            if (op != Category.SIZEOF) {
+              push(Pending.UNARY).operator = op;
+            } else {
+              expect(Category.LPAR);
+              if (!accept(FIRST_TYPE)) {
+                error(FIRST_FIELD_TYPE);
+                recovery();
+                return new SizeOfExpr(BaseType.UNKNOWN);
+              }
+              // handling sizeof
+              Type sizeOfType = parseType();
+              expect(Category.RPAR);
+              return new SizeOfExpr(sizeOfType);
+            }
+          }
+        }
+        case PRIMARY -> {
+          Expr primary = startPrimary();
+          if (primary != null) return primary;
+          // what the frame startPrimary pushed is waiting for
+          goal =
+              switch (frames[depth - 1].kind) {
+                case CAST -> Goal.UNARY;
+                case UNARY, FIELD -> Goal.PRIMARY;
+                default -> Goal.EXPR;
+              };
+        }
       }
     }
-    expect(Category.RPAR);
-    return new FunCallExpr(id.data, args);
   }
 
   /**
    * Parses a primary expression. [exp ::= "(" exp ")" | IDENT | INT_LITERAL | CHAR_LITERAL |
    * STRING_LITERAL] | valueat | addressof | funcall | sizeof | typecast | arrayaccess | fieldaccess
+   *
+   * <p>Returns null after pushing a frame when the primary expression contains a sub-expression.
    */
-  private Expr parsePrimaryExpr() {
+  private Expr startPrimary() {
     // check if the token is an identifier
     // INT_LITERAL
     if (accept(Category.INT_LITERAL)) {
@@ -900,27 +1354,14 @@ public class Parser extends CompilerPass {
       // Check for function call, array access, or field access
       // function call
       if (accept(Category.LPAR)) {
-        return parseFuncCallExpr(id);
+        return startCall(id);
       }
       // array access or field access
       else if (accept(Category.LSBR)) {
         nextToken();
-        List<Expr> dimensionsExper1 = new ArrayList<>();
-        Expr index = parseExpr();
-        dimensionsExper1.add(index);
-        expect(Category.RSBR);
-        return new ArrayAccessExpr(new VarExpr(id.data), dimensionsExper1, index);
+        push(Pending.VAR_INDEX).id = id;
+        return null;
       }
-      /*
-      // here the error for sort list
-      else if (accept(Category.DOT)) {
-        nextToken();
-        // Parse the field identifier
-        String field = expect(Category.IDENTIFIER).data;
-        // to test for sort link list
-        return new FieldAccessExpr(new VarExpr(id.data), field);
-      }
-        */
       return new VarExpr(id.data);
     }
     // Class instantiation
@@ -944,32 +1385,26 @@ public class Parser extends CompilerPass {
     else if (accept(Category.LPAR)) {
       nextToken();
       // Check if it's a type cast
-      if (accept(Category.INT, Category.CHAR, Category.VOID, Category.STRUCT, Category.CLASS)) {
+      if (accept(FIRST_TYPE)) {
         Type castType = parseType();
         expect(Category.RPAR);
-        Expr expr = parseUnaryExpr();
-        return new TypecastExpr(castType, expr);
+        push(Pending.CAST).type = castType;
       } else {
         //  handle (a + b)
-        Expr expr = parseExpr();
-        expect(Category.RPAR);
-        // check if field access
-        // Reenter postfix parsing after parenthesized expression
-        return parsePostfixExprTail(expr);
-        // return expr;
+        push(Pending.PAREN);
       }
+      return null;
     }
     // check if the token is value at ["*"] - Value at operator (pointer indirection)
     // valueat ::= "*" exp
-    else if (accept(Category.ASTERISK)) {
-      nextToken();
-      return new ValueAtExpr(parsePrimaryExpr());
-    }
     // check if the token is an address of ["&"] - Address of operator
     // addressof ::= "&" exp
-    else if (accept(Category.AND)) {
+    // plus and minus
+    else if (accept(Category.ASTERISK) || accept(Category.AND) || accept(SIGNS)) {
+      Category op = token.category;
       nextToken();
-      return new AddressOfExpr(parsePrimaryExpr());
+      push(Pending.UNARY).operator = op;
+      return null;
     }
     // check if the token is a sizeof ["sizeof"] - Sizeof operator
     // sizeof ::= "sizeof" "(" type ")"
@@ -979,58 +1414,149 @@ public class Parser extends CompilerPass {
       Type sizeOfType = parseType();
       expect(Category.RPAR);
       return new SizeOfExpr(sizeOfType);
-    } else if (accept(Category.LPAR)) {
-      nextToken();
-      Expr expr = parseExpr();
-      expect(Category.RPAR);
-      return expr;
     } // check if the token is a left square brace ["["]
     else if (accept(Category.LSBR)) {
       nextToken();
-      List<Expr> dimensionsExper2 = new ArrayList<>();
-      Expr index = parseExpr();
-      dimensionsExper2.add(index);
-      expect(Category.RSBR);
-      return new ArrayAccessExpr(parsePrimaryExpr(), dimensionsExper2, index);
+      push(Pending.PREFIX_INDEX);
+      return null;
     } else if (accept(Category.DOT)) {
       nextToken();
       // Parse the field identifier
-      String field = expect(Category.IDENTIFIER).data;
       // to test for sort link list
-      return new FieldAccessExpr(parsePrimaryExpr(), field);
-    } // plus and minus
-    else if (accept(Category.PLUS, Category.MINUS)) {
-      Category op = token.category;
-      nextToken();
-      return new BinOp(
-          new IntLiteral(0), op == Category.PLUS ? Op.ADD : Op.SUB, parsePrimaryExpr());
+      push(Pending.FIELD).field = expect(Category.IDENTIFIER).data;
+      return null;
     } else {
-      error(
-          Category.INT_LITERAL,
-          Category.CHAR_LITERAL,
-          Category.STRING_LITERAL,
-          Category.IDENTIFIER,
-          Category.LPAR,
-          Category.ASTERISK,
-          Category.AND,
-          Category.SIZEOF,
-          Category.LSBR,
-          Category.DOT);
+      error(FIRST_PRIMARY);
       recovery();
       return new IntLiteral(0);
     }
   }
 
-  // handle postfix operators after primary expression
-  private Expr parsePostfixExprTail(Expr expr) {
-    while (true) {
-      if (accept(Category.LSBR)) {
+  // parse the function call expression, returns null if it has arguments to parse
+  private Expr startCall(Token id) {
+    expect(Category.LPAR);
+    List<Expr> args = new ArrayList<>();
+    // Check if there are arguments
+    if (accept(Category.RPAR)) {
+      expect(Category.RPAR);
+      return new FunCallExpr(id.data, args);
+    }
+    ExprFrame frame = push(Pending.CALL);
+    frame.id = id;
+    frame.args = args;
+    return null;
+  }
+
+  /*
+   * Gives frame, the top of the stack, the value of the sub-expression it was waiting for. Returns
+   * the next value to hand to the top of the stack: the completed construct once frame is popped, or
+   * the first expression of the next sub-expression frame needs.
+   */
+  private Expr resume(ExprFrame frame, Expr value) {
+    switch (frame.kind) {
+      case ASSIGN_LHS -> {
+        // Assignment ::= Expr "=" Expr
+        if (accept(Category.ASSIGN)) {
+          nextToken();
+          frame.kind = Pending.ASSIGN_RHS;
+          frame.expr = value;
+          return descend(Goal.EXPR, 1);
+        }
+        pop();
+        return value;
+      }
+      case ASSIGN_RHS -> {
+        pop();
+        return new Assign(frame.expr, value);
+      }
+      case BINARY -> {
+        frame.expr = frame.op == null ? value : new BinOp(frame.expr, frame.op, value);
+        int precedence = PRECEDENCE[token.category.ordinal()];
+        if (precedence == 0 || precedence < frame.minPrecedence) {
+          pop();
+          return frame.expr;
+        }
+        frame.op = BINARY_OP[token.category.ordinal()];
         nextToken();
+        return descend(Goal.BINARY, precedence + 1);
+      }
+      case UNARY -> {
+        pop();
+        switch (frame.operator) {
+          case PLUS:
+            return new BinOp(new IntLiteral(0), Op.ADD, value);
+          case MINUS:
+            return new BinOp(new IntLiteral(0), Op.SUB, value);
+          case ASTERISK:
+            return new ValueAtExpr(value);
+          case AND:
+            return new AddressOfExpr(value);
+          default:
+            error(UNARY_OPERATORS);
+            recovery();
+            return new IntLiteral(0);
+        }
+      }
+      case TAIL -> frame.expr = value;
+      case TAIL_INDEX -> {
+        expect(Category.RSBR);
         List<Expr> dimensionsExper3 = new ArrayList<>();
-        Expr index = parseExpr();
+        dimensionsExper3.add(value);
+        frame.expr = new ArrayAccessExpr(frame.expr, dimensionsExper3, value);
+      }
+      // P5 : AST node
+      case TAIL_METHOD -> frame.expr = new InstanceFunCallExpr(frame.expr, (FunCallExpr) value);
+      case CALL -> {
+        frame.args.add(value);
+        if (accept(Category.COMMA)) {
+          nextToken();
+          return descend(Goal.EXPR, 1);
+        }
+        pop();
+        expect(Category.RPAR);
+        return new FunCallExpr(frame.id.data, frame.args);
+      }
+      case VAR_INDEX -> {
+        pop();
+        List<Expr> dimensionsExper1 = new ArrayList<>();
+        dimensionsExper1.add(value);
+        expect(Category.RSBR);
+        return new ArrayAccessExpr(new VarExpr(frame.id.data), dimensionsExper1, value);
+      }
+      case CAST -> {
+        pop();
+        return new TypecastExpr(frame.type, value);
+      }
+      case PAREN -> {
+        expect(Category.RPAR);
+        // Reenter postfix parsing after parenthesized expression
+        frame.kind = Pending.TAIL;
+        frame.expr = value;
+      }
+      case PREFIX_INDEX -> {
+        frame.expr = value;
         expect(Category.RSBR);
-        dimensionsExper3.add(index);
-        expr = new ArrayAccessExpr(expr, dimensionsExper3, index);
+        frame.kind = Pending.PREFIX_INDEXED;
+        return descend(Goal.PRIMARY, 0);
+      }
+      case PREFIX_INDEXED -> {
+        pop();
+        List<Expr> dimensionsExper2 = new ArrayList<>();
+        dimensionsExper2.add(frame.expr);
+        return new ArrayAccessExpr(value, dimensionsExper2, frame.expr);
+      }
+      case FIELD -> {
+        pop();
+        return new FieldAccessExpr(value, frame.field);
+      }
+    }
+
+    // handle postfix operators after an expression (the frame is a TAIL)
+    while (true) {
+      if (accept(Category.LSBR)) {
+        nextToken();
+        frame.kind = Pending.TAIL_INDEX;
+        return descend(Goal.EXPR, 1);
       }
       /*
        *  instanceFuncall ::= exp "." funcall
@@ -1043,28 +1569,53 @@ public class Parser extends CompilerPass {
         if (accept(Category.LPAR)) {
           // P5 : instance method: exp.method(args)
           // instanceFuncall ::= exp "." funcall
-          FunCallExpr call = parseFuncCallExpr(id);
-          // P5 : AST node
-          expr = new InstanceFunCallExpr(expr, call);
+          frame.kind = Pending.TAIL_METHOD;
+          Expr call = startCall(id);
+          return call != null ? call : descend(Goal.EXPR, 1);
         } else {
           // field access: exp.field
-          expr = new FieldAccessExpr(expr, id.data);
+          frame.expr = new FieldAccessExpr(frame.expr, id.data);
         }
       } else {
-        break;
+        pop();
+        return frame.expr;
       }
     }
-    return expr;
   }
 
+  /*
+   * Panic-mode recovery after an error, skipping tokens up to a point where parsing can resume.
+   * Every token is skipped at most once, so recovering costs time linear in the input.
+   */
   private void recovery() {
-    // Skip tokens until a recovery point is found after finish the statement
-    while (!accept(Category.SC, Category.LBRA, Category.RBRA, Category.EOF)) {
+    if (nesting > 0) recoverStatement();
+    else recoverDeclaration();
+  }
+
+  /*
+   * Inside braces: skip the rest of the statement, up to and including its ';', or up to a token
+   * that starts or ends a statement or block. The enclosing loop resumes on that token, so a brace
+   * is never consumed here and blocks stay balanced.
+   */
+  private void recoverStatement() {
+    while (!accept(STATEMENT_SYNC)) {
+      if (accept(Category.SC)) {
+        nextToken();
+        return;
+      }
       nextToken();
-      // System.out.println("Skipping token: " + token);
     }
-    // Consume the token if it's not EOF
-    if (!accept(Category.EOF)) {
+  }
+
+  /*
+   * At the top level: skip to the next type that starts a declaration outside of braces, skipping
+   * over whole bodies ("{" ... "}") and stray closing braces.
+   */
+  private void recoverDeclaration() {
+    int depth = 0;
+    while (!accept(Category.EOF) && (depth > 0 || !accept(FIRST_TYPE))) {
+      if (accept(Category.LBRA)) depth++;
+      else if (accept(Category.RBRA) && depth > 0) depth--;
       nextToken();
     }
   }
@@ -0,0 +1,223 @@
+package parser;
+
+import ast.Program;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import lexer.Scanner;
+import lexer.TokenStream;
+import lexer.Tokeniser;
+
+/**
+ * Times the parser on a corpus of test programs repeated many times.
+ *
+ * <p>Usage: java -cp bin parser.ParserBenchmark [dir] [copies]
+ *
+ * <p>dir defaults to tests/test/test_parser and copies to 200. Only the .c files of dir that parse
+ * without errors are used, concatenated into one input with their #include lines removed (the
+ * grammar only allows them at the start). A second, generated input consists of
+ * functions made of long expressions mixing every binary and unary operator. Each input is timed
+ * lexed and parsed together, then parsed alone from a pre-lexed TokenStream; the best of several
+ * runs is reported, parsing alone also on a worker pool of 1, 2, 4... threads up to the number of
+ * available processors. The corpus is also kept parsed by an IncrementalParser while characters are
+ * typed and deleted at random places.
+ */
+public class ParserBenchmark {
+
+  private static final int RUNS = 10;
+
+  public static void main(String[] args) throws IOException {
+    File dir = new File(args.length > 0 ? args[0] : "tests/test/test_parser");
+    int copies = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".c"));
+    if (files == null) {
+      System.out.println("Not a directory: " + dir);
+      System.exit(-1);
+    }
+    Arrays.sort(files);
+
+    StringBuilder corpus = new StringBuilder();
+    int used = 0;
+    for (File f : files) {
+      String text = new String(Files.readAllBytes(f.toPath()), Charset.defaultCharset());
+      if (parse(text) == 0) {
+        corpus.append(text.replaceAll("(?m)^#include.*$", "")).append('\n');
+        used++;
+      }
+    }
+    StringBuilder sb = new StringBuilder(corpus.length() * copies);
+    for (int i = 0; i < copies; i++) sb.append(corpus);
+    String input = sb.toString();
+    System.out.println(
+        used + " of " + files.length + " files, " + copies + " copies, " + input.length()
+            + " characters");
+
+    measure(input);
+    measureEdits(input);
+
+    String expressions = expressionHeavy(copies * 25);
+    System.out.println("generated expressions, " + expressions.length() + " characters");
+    measure(expressions);
+  }
+
+  /*
+   * Times lexing and parsing together through the Tokeniser (and the parser's lookahead buffer),
+   * then parsing alone from a TokenStream lexed beforehand.
+   */
+  private static void measure(String input) {
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r < RUNS; r++) {
+      long t0 = System.nanoTime();
+      parse(input);
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    System.out.println("  lex + parse: " + best / 1000000 + " ms");
+
+    TokenStream tokens = TokenStream.lex(new Tokeniser(new Scanner(input)));
+    best = Long.MAX_VALUE;
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    try {
+      for (int r = 0; r < RUNS; r++) {
+        long t0 = System.nanoTime();
+        new Parser(tokens).parse();
+        best = Math.min(best, System.nanoTime() - t0);
+      }
+    } finally {
+      System.setOut(out);
+    }
+    System.out.println("  parse only:  " + best / 1000000 + " ms (" + tokens.size() + " tokens)");
+
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads <= maxThreads; threads *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      long parallel = Long.MAX_VALUE;
+      System.setOut(new PrintStream(new ByteArrayOutputStream()));
+      try {
+        for (int r = 0; r < RUNS; r++) {
+          long t0 = System.nanoTime();
+          new Parser(tokens, pool).parse();
+          parallel = Math.min(parallel, System.nanoTime() - t0);
+        }
+      } finally {
+        System.setOut(out);
+        pool.shutdown();
+      }
+      System.out.printf(
+          "  parse only, parallel, %d threads: %d ms (%.2fx)%n",
+          threads, parallel / 1000000, (double) best / parallel);
+    }
+  }
+
+  private static final int EDITS = 1000;
+
+  /*
+   * Times IncrementalParser on keystrokes at random places of the input: typing a character, then
+   * deleting it again.
+   */
+  private static void measureEdits(String input) {
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    long t0 = System.nanoTime();
+    IncrementalParser parser = new IncrementalParser(input);
+    long initial = System.nanoTime() - t0;
+    Random random = new Random(42);
+    long total = 0;
+    long worst = 0;
+    int reparsed = 0;
+    try {
+      Program program = parser.getProgram();
+      for (int e = 0; e < EDITS; e++) {
+        int offset = random.nextInt(input.length());
+        t0 = System.nanoTime();
+        program = parser.reparse(program, offset, 0, "x");
+        reparsed += parser.getReparsedCount();
+        program = parser.reparse(program, offset, 1, "");
+        long t = System.nanoTime() - t0;
+        reparsed += parser.getReparsedCount();
+        total += t;
+        worst = Math.max(worst, t);
+      }
+    } finally {
+      System.setOut(out);
+    }
+    System.out.printf(
+        "  incremental: initial parse %d ms, %.2f ms per keystroke (worst %.2f ms), "
+            + "%.1f declarations re-parsed per keystroke%n",
+        initial / 1000000,
+        total / 2e6 / EDITS,
+        worst / 2e6,
+        reparsed / (2.0 * EDITS));
+  }
+
+  private static final String[] BINARY_OPS = {
+    "||", "&&", "==", "!=", "<", ">", "<=", ">=", "+", "-", "*", "/", "%"
+  };
+  private static final String[] UNARY_OPS = {"-", "+", "*", "&"};
+
+  // a program of functions whose statements are long expressions, always the same for a given size
+  private static String expressionHeavy(int functions) {
+    Random random = new Random(42);
+    StringBuilder sb = new StringBuilder();
+    for (int f = 0; f < functions; f++) {
+      sb.append("int f").append(f).append("(int a, int b) {\n  int x;\n");
+      for (int s = 0; s < 4; s++) {
+        sb.append("  x = ");
+        expression(sb, random, 5);
+        sb.append(";\n");
+      }
+      sb.append("  return x;\n}\n");
+    }
+    return sb.toString();
+  }
+
+  private static void expression(StringBuilder sb, Random random, int depth) {
+    if (depth == 0) {
+      switch (random.nextInt(4)) {
+        case 0 -> sb.append('a');
+        case 1 -> sb.append('b');
+        case 2 -> sb.append(random.nextInt(1000));
+        default -> sb.append("x");
+      }
+      return;
+    }
+    switch (random.nextInt(8)) {
+      case 0 -> {
+        sb.append('(');
+        expression(sb, random, depth - 1);
+        sb.append(')');
+      }
+      case 1 -> {
+        // the space keeps & &x from being lexed as &&
+        sb.append(UNARY_OPS[random.nextInt(UNARY_OPS.length)]).append(' ');
+        expression(sb, random, depth - 1);
+      }
+      default -> {
+        expression(sb, random, depth - 1);
+        sb.append(' ').append(BINARY_OPS[random.nextInt(BINARY_OPS.length)]).append(' ');
+        expression(sb, random, depth - 1);
+      }
+    }
+  }
+
+  // parses the text with the error messages discarded, returns the number of errors
+  private static int parse(String text) {
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    try {
+      Tokeniser tokeniser = new Tokeniser(new Scanner(text));
+      Parser parser = new Parser(tokeniser);
+      parser.parse();
+      return tokeniser.getNumErrors() + parser.getNumErrors();
+    } finally {
+      System.setOut(out);
+    }
+  }
+}
@@ -1,6 +1,18 @@
 package sem;
 
 
+import ast.BaseType;
+import ast.ClassDecl;
+import ast.FunDecl;
+import ast.FunDef;
+import ast.PointerType;
+import ast.StructTypeDecl;
+import ast.Types;
+import ast.VarDecl;
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import util.CompilerPass;
 
 /**
@@ -10,10 +22,172 @@ import util.CompilerPass;
  */
 public abstract class BaseSemanticAnalyzer extends CompilerPass {
 
+	/*
+	 * The built-in functions, always declared:
+	 * void print_s(char* s);
+	 * void print_i(int i);
+	 * void print_c(char c);
+	 * char read_c();
+	 * int read_i();
+	 * void* mcmalloc(int size);
+	 * Shared by all analyzers, which only read them.
+	 */
+	protected static final List<FunDecl> BUILT_IN_FUNCTIONS = List.of(
+		new FunDecl(BaseType.VOID, "print_s",
+			List.of(new VarDecl(Types.basePointer(BaseType.CHAR), "s"))),
+		new FunDecl(BaseType.VOID, "print_i", List.of(new VarDecl(BaseType.INT, "i"))),
+		new FunDecl(BaseType.VOID, "print_c", List.of(new VarDecl(BaseType.CHAR, "c"))),
+		new FunDecl(BaseType.CHAR, "read_c", List.of()),
+		new FunDecl(BaseType.INT, "read_i", List.of()),
+		new FunDecl(Types.basePointer(BaseType.VOID), "mcmalloc",
+			List.of(new VarDecl(BaseType.INT, "size"))));
+
+	// the type table of the program being analysed, set when its Program node is visited
+	protected Types types = new Types();
 
 	protected void error(String message) {
-		System.out.println("semantic error: " + message);
+		print("semantic error: " + message);
 		incError();
 	}
 
+	// where the lines of the analysis are printed, System.out when null
+	private PrintStream output;
+
+	// prints the lines of the analysis to output instead of System.out
+	void setOutput(PrintStream output) {
+		this.output = output;
+	}
+
+	protected PrintStream output() {
+		return output == null ? System.out : output;
+	}
+
+	// prints a line of the analysis, an analyzer may collect its lines instead
+	protected void print(String line) {
+		output().println(line);
+	}
+
+	/*
+	 * The checks below are shared by the NameAnalyzer, the TypeAnalyzer and the FusedAnalyzer,
+	 * which report the same problems with the same messages.
+	 */
+
+	// the built-in function called name, null if there is none
+	protected static FunDecl builtIn(String name) {
+		for (FunDecl f : BUILT_IN_FUNCTIONS) {
+			if (f.name.equals(name)) return f;
+		}
+		return null;
+	}
+
+	// adds the fields and methods of cd to cs, reporting a field or method declared twice and a
+	// method with two parameters of the same name
+	protected void addMembers(ClassDecl cd, ClassSymbol cs) {
+		for (VarDecl f : cd.fields) {
+			if (cs.fields.containsKey(f.name)) {
+				error("Field override: " + f.name + " in class " + cd.name);
+			}
+			cs.addField(f);
+		}
+		for (FunDef m : cd.methods) {
+			if (cs.methods.containsKey(m.name)) {
+				error("Method " + m.name + " is already defined in class " + cd.name);
+			}
+			Set<String> parameterseen = new HashSet<>();
+			for (VarDecl param : m.params) {
+				if (!parameterseen.add(param.name)) {
+					error("Method '" + m.name + "' in class '" + cd.name
+							+ "' has duplicate parameter '" + param.name + "'.");
+				}
+			}
+			cs.addMethod(new FunSymbol(m));
+		}
+	}
+
+	// reports the fields of cd that its parent class declares already
+	protected void checkFieldOverrides(ClassDecl cd, ClassSymbol parent) {
+		for (VarDecl f : cd.fields) {
+			if (parent.fields.containsKey(f.name)) {
+				error("Field override: " + f.name + " in class " + cd.name);
+			}
+		}
+	}
+
+	// reports the methods of cd that override a method of parent with another signature
+	protected void checkMethodOverrides(ClassDecl cd, ClassSymbol parent) {
+		for (FunDef m : cd.methods) {
+			FunSymbol superMethod = parent.getMethod(m.name);
+			if (superMethod != null
+					&& (!superMethod.getParamTypes().equals(m.getParamTypes())
+							|| !superMethod.type.equals(m.type))) {
+				error("Method override mismatch: " + m.name + " in class " + cd.name);
+			}
+		}
+	}
+
+	// why fd does not match the declaration decl (null if there is none), or null if it does
+	protected static String declarationMismatch(FunDef fd, FunDecl decl) {
+		if (decl == null || decl.type instanceof PointerType) return null;
+		if (!fd.type.equals(decl.type)) return "Return types do not match.";
+		if (fd.params.size() != decl.params.size()) return "Parameter count does not match.";
+		for (int i = 0; i < fd.params.size(); i++) {
+			if (!fd.params.get(i).type.equals(decl.params.get(i).type)
+					&& !(decl.params.get(i).type instanceof PointerType)) {
+				return "Parameter types do not match.";
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Declares the parameters of fd in scope, nested in outer. A parameter declared twice is
+	 * reported and false returned, the parameters after it are not declared. With noteShadowing,
+	 * a parameter that hides a variable of outer is noted.
+	 */
+	protected boolean checkParameters(FunDef fd, Scope outer, Scope scope, boolean noteShadowing) {
+		Set<String> declaredParams = new HashSet<>();
+		for (VarDecl param : fd.params) {
+			if (noteShadowing && outer.lookupVariable(param.name) != null) {
+				print("Shadowing detected: Function parameter '" + param.name
+						+ "' shadows a global variable.");
+			}
+			if (!declaredParams.add(param.name)) {
+				error("Function parameter '" + param.name + "' is already declared in this function.");
+				return false;
+			}
+			scope.put(new VarSymbol(param));
+		}
+		return true;
+	}
+
+	/*
+	 * Reports vd if a variable of the same name and type is declared in scope already, and returns
+	 * false. With noteShadowing, a variable that hides one of an enclosing scope is noted.
+	 */
+	protected boolean checkRedeclaration(Scope scope, VarDecl vd, boolean noteShadowing) {
+		if (scope.lookupCurrent(vd.name) != null) {
+			VarSymbol vs = scope.lookupVariable(vd.name);
+			if (vs != null && vs.vd.type.equals(vd.type)) {
+				error("Variable " + vd.name + " is already declared with a same type.");
+				return false;
+			}
+		}
+		if (noteShadowing && scope.isShadowed(vd.name)) {
+			print("shadowing detected: " + vd.name);
+		}
+		return true;
+	}
+
+	// reports the first field of std declared twice and returns false, if there is one
+	protected boolean checkFieldNames(StructTypeDecl std) {
+		Set<String> fieldNames = new HashSet<>();
+		for (VarDecl field : std.fields) {
+			if (!fieldNames.add(field.name)) {
+				error("Duplicate field '" + field.name + "' in struct " + std.structType.name);
+				return false;
+			}
+		}
+		return true;
+	}
+
 }
@@ -9,6 +9,8 @@ public class ClassSymbol extends Symbol {
   public ClassSymbol parent;
   // the fields and methods of the class
   public final Map<String, Type> fields = new HashMap<>();
+  // the declarations of the fields
+  public final Map<String, VarDecl> fieldDecls = new HashMap<>();
   // the methods of the class
   public final Map<String, FunSymbol> methods = new HashMap<>();
 
@@ -22,6 +24,12 @@ public class ClassSymbol extends Symbol {
     fields.put(name, t);
   }
 
+  // add a field to the class, with its declaration
+  public void addField(VarDecl f) {
+    fields.put(f.name, f.type);
+    fieldDecls.put(f.name, f);
+  }
+
   // add a method to the class
   public void addMethod(FunSymbol m) {
     methods.put(m.name, m);
@@ -33,6 +41,12 @@ public class ClassSymbol extends Symbol {
     return t != null ? t : (parent != null ? parent.getField(name) : null);
   }
 
+  // the declaration of a field of the class or of an ancestor
+  public VarDecl getFieldDecl(String name) {
+    VarDecl f = fieldDecls.get(name);
+    return f != null ? f : (parent != null ? parent.getFieldDecl(name) : null);
+  }
+
   // check if the class has a method
   public FunSymbol getMethod(String name) {
     FunSymbol m = methods.get(name);
@@ -0,0 +1,111 @@
+package sem;
+
+import ast.ASTNode;
+import ast.ASTPrinter;
+import ast.ASTWalker;
+import ast.Expr;
+import ast.FieldAccessExpr;
+import ast.FunCallExpr;
+import ast.Program;
+import ast.Type;
+import ast.VarDecl;
+import ast.VarExpr;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compares two runs of semantic analysis on the same program: what they printed, how many errors
+ * they found and the types and bindings they left in the AST. Used by the CROSS_CHECK mode of the
+ * {@link SemanticAnalyzer} and by {@link SemanticCheck}.
+ */
+final class CrossCheck {
+
+  private CrossCheck() {}
+
+  // what a run printed and found, and the annotations it left in the AST
+  record Run(String printed, int errors, List<Object> annotations) {}
+
+  // number of annotations per expression
+  private static final int ANNOTATIONS = 5;
+
+  /*
+   * For each expression in preorder, its type (printed), the function declaration and definition
+   * it resolves to if it is a call, and the variable or field it is bound to. A variable that is
+   * not declared in the program (NULL) is given by its name. With clear, the annotations and the
+   * bindings of names are removed from the AST once read.
+   */
+  static List<Object> annotations(Program prog, boolean clear) {
+    Set<ASTNode> declared = Collections.newSetFromMap(new IdentityHashMap<>());
+    new ASTWalker()
+        .walk(
+            prog,
+            node -> {
+              if (node instanceof VarDecl) declared.add(node);
+              return true;
+            });
+    List<Object> results = new ArrayList<>();
+    new ASTWalker()
+        .walk(
+            prog,
+            node -> {
+              if (node instanceof Expr e) {
+                results.add(describe(e.type));
+                results.add(e instanceof FunCallExpr fc ? fc.decl : null);
+                results.add(e instanceof FunCallExpr fc ? fc.def : null);
+                VarDecl vd = e instanceof VarExpr v ? v.vd : null;
+                results.add(vd == null || declared.contains(vd) ? vd : vd.name);
+                results.add(e instanceof FieldAccessExpr fa ? fa.fieldDecl : null);
+                if (clear) SemanticAnalyzer.clear(e);
+              }
+              return true;
+            });
+    return results;
+  }
+
+  private static String describe(Type type) {
+    if (type == null) return null;
+    StringWriter text = new StringWriter();
+    PrintWriter writer = new PrintWriter(text);
+    new ASTPrinter(writer).visit((ASTNode) type);
+    writer.flush();
+    return text.toString();
+  }
+
+  /*
+   * How run differs from expected, null if it does not. Unless exact, runs that both found errors
+   * are not compared further: the fused pass leaves the messages of such a program to the two
+   * passes.
+   */
+  static String difference(Run expected, Run run, boolean exact) {
+    if (!exact && run.errors() > 0 && expected.errors() > 0) return null;
+    if (run.errors() != expected.errors()) {
+      return run.errors() + " errors instead of " + expected.errors();
+    }
+    List<String> lines = run.printed().lines().toList();
+    List<String> expectedLines = expected.printed().lines().toList();
+    for (int i = 0; i < Math.max(lines.size(), expectedLines.size()); i++) {
+      String line = i < lines.size() ? lines.get(i) : null;
+      String expectedLine = i < expectedLines.size() ? expectedLines.get(i) : null;
+      if (!Objects.equals(line, expectedLine)) {
+        return "line " + (i + 1) + " printed " + line + " instead of " + expectedLine;
+      }
+    }
+    for (int i = 0; i < run.annotations().size(); i++) {
+      if (!Objects.equals(run.annotations().get(i), expected.annotations().get(i))) {
+        return "expression "
+            + i / ANNOTATIONS
+            + " differs: "
+            + run.annotations().get(i)
+            + " instead of "
+            + expected.annotations().get(i);
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,20 @@
+package sem;
+
+/**
+ * What a nested {@link Scope} reads of the scope around it: another Scope, or a read-only {@link
+ * ScopePrefix} of one.
+ */
+interface EnclosingScope {
+
+  /** looks up a symbol in this and the enclosing scopes. */
+  Symbol lookup(String name);
+
+  /** looks up a symbol only in this scope. */
+  Symbol lookupCurrent(String name);
+
+  /** whether name is declared in this or an enclosing scope, see Scope.isDeclaredBeforeUse. */
+  boolean isDeclaredBeforeUse(String name);
+
+  /** the enclosing scope, null for the global scope. */
+  EnclosingScope outer();
+}
@@ -0,0 +1,246 @@
+package sem;
+
+import ast.*;
+
+/**
+ * FusedAnalyzer does the work of {@link NameAnalyzer} and {@link TypeAnalyzer} in a single walk of
+ * the AST: it is a TypeAnalyzer that, before type checking a node NameAnalyzer would visit, does
+ * what NameAnalyzer does for it. A program is found to have errors exactly when one of the two
+ * analyzers finds some, and a program without errors is printed and annotated as the two analyzers
+ * print and annotate it, with the lines of NameAnalyzer first.
+ *
+ * <p>The two analyzers share the block and parameter scopes of a function, which they fill the same
+ * way until one of them reports an error. They see the global scope differently: TypeAnalyzer
+ * declares every class up front and the fields and methods of each class as globals, NameAnalyzer
+ * declares a class where it is declared and its members in the class only. The global scope of this
+ * pass keeps both views, and a name is looked up in the view of the analyzer that looks it up.
+ *
+ * <p>Once an error has been reported the two views may differ in the local scopes too, so the
+ * errors after the first, and the lines printed, are not those of the two analyzers. {@link
+ * SemanticAnalyzer} runs the two analyzers on a program this pass finds errors in.
+ */
+public class FusedAnalyzer extends TypeAnalyzer {
+  // the global scope, as TypeAnalyzer sees it unless naming is set
+  private final Globals globals = new Globals();
+  // whether NameAnalyzer's view of the globals is used, while a node is name checked
+  private boolean naming = false;
+  // the children of the node being checked that NameAnalyzer would visit: all of them, or one
+  private boolean allNamed = true;
+  private ASTNode namedChild;
+  // the lines NameAnalyzer would print, then those TypeAnalyzer would print
+  private final StringBuilder namedLines = new StringBuilder();
+  private final StringBuilder typedLines = new StringBuilder();
+
+  public FusedAnalyzer() {
+    currentScope = globals;
+    // each analyzer has its own built-in functions, NameAnalyzer links a definition to its own
+    for (FunDecl f : BUILT_IN_FUNCTIONS) {
+      globals.put(new FunSymbol(f));
+      globals.named.put(new FunSymbol(f));
+    }
+  }
+
+  /** The lines of the analysis, to be printed if it found no errors. */
+  public String lines() {
+    return namedLines.toString() + typedLines;
+  }
+
+  @Override
+  public Type visit(ASTNode node) {
+    boolean outerAll = allNamed;
+    ASTNode outerChild = namedChild;
+    boolean named = allNamed || node == namedChild;
+    allNamed = false;
+    namedChild = null;
+    if (named) name(node);
+    try {
+      return super.visit(node);
+    } finally {
+      allNamed = outerAll;
+      namedChild = outerChild;
+    }
+  }
+
+  /*
+   * Does what NameAnalyzer does for node, except visiting its children, and sets those it would
+   * go on to. The variables of a block are declared by the type check, in the same scopes.
+   */
+  private void name(ASTNode node) {
+    naming = true;
+    try {
+      switch (node) {
+        // the most frequent nodes first
+        case Block b -> allNamed = true;
+        case ExprStmt es -> allNamed = true;
+        case Return r -> allNamed = true;
+        case Assign a -> allNamed = true;
+        case BinOp b -> allNamed = true;
+
+        case ClassDecl cd -> {
+          if (currentScope.lookupCurrent(cd.name) != null) {
+            error("Class " + cd.name + " is already declared.");
+            return;
+          }
+          ClassSymbol cs = new ClassSymbol(cd.name, cd.parent);
+          currentScope.put(cs);
+          addMembers(cd, cs);
+          if (cd.parent != null) {
+            ClassSymbol parent = currentScope.lookupClass(cd.parent);
+            if (parent != null) {
+              checkFieldOverrides(cd, parent);
+              cs.parent = parent;
+            } else {
+              error("Unknown parent class: " + cd.parent);
+            }
+          }
+        }
+
+        case FunDecl fd -> {
+          if (builtIn(fd.name) == null) {
+            if (currentScope.lookupFunction(fd.name) != null) {
+              error("Function " + fd.name + " is already declared.");
+            } else {
+              currentScope.put(new FunSymbol(fd));
+              currentScope.trackDeclaration(fd.name);
+            }
+          }
+        }
+
+        case FunDef fd -> {
+          FunSymbol existingSymbol = currentScope.lookupFunction(fd.name);
+          if (existingSymbol == null) {
+            currentScope.put(new FunSymbol(fd));
+            currentScope.trackDeclaration(fd.name);
+          } else if (existingSymbol.def != null) {
+            error("Function " + fd.name + " is already defined.");
+            return;
+          } else {
+            String mismatch = declarationMismatch(fd, existingSymbol.decl);
+            if (mismatch != null) {
+              error("Function " + fd.name + " definition does not match declaration: " + mismatch);
+              return;
+            }
+            existingSymbol.setDefinition(fd);
+          }
+          // the parameters are checked when the type check declares them
+          namedChild = fd.block;
+        }
+
+        case StructTypeDecl std -> {
+          if (currentScope.lookupCurrent(std.structType.name) != null) {
+            error("Struct " + std.structType.name + " is already declared.");
+          } else {
+            currentScope.put(new StructSymbol(std));
+            checkFieldNames(std);
+          }
+        }
+
+        case VarDecl vd -> {
+          // the type check declares it again in the TypeAnalyzer's view of the globals
+          if (checkRedeclaration(currentScope, vd, true) && currentScope == globals) {
+            currentScope.put(new VarSymbol(vd));
+          }
+        }
+
+        case VarExpr v -> {
+          VarSymbol vs = currentScope.lookupVariable(v.name);
+          if (v.name.equals("NULL")) {
+            v.vd = new VarDecl(Types.basePointer(BaseType.VOID), "NULL");
+          } else if (vs == null) {
+            error("Variable " + v.name + " must be declared before use.");
+          } else {
+            v.vd = vs.vd;
+          }
+        }
+
+        case FunCallExpr fc -> {
+          FunSymbol fs = currentScope.lookupFunction(fc.name);
+          if (fs == null) {
+            error("Function " + fc.name + " must be declared before use.");
+            return;
+          }
+          int expectedParams = fs.def != null ? fs.def.params.size() : fs.decl.params.size();
+          if (expectedParams != fc.args.size()) {
+            error(
+                "Function "
+                    + fc.name
+                    + " called with incorrect number of arguments. Expected: "
+                    + expectedParams
+                    + ", Provided: "
+                    + fc.args.size());
+            return;
+          }
+          if (fs.def != null) {
+            fc.def = fs.def;
+          } else {
+            fc.decl = fs.decl;
+          }
+          // the arguments are not name checked, the type check does not store the call's type
+          fc.type = fs.type;
+        }
+
+        case NewInstance ni -> {
+          if (currentScope.lookupClass(ni.className) == null) {
+            error("Class " + ni.className + " must be declared before instantiation.");
+          }
+        }
+
+        case Program p -> allNamed = true;
+        // only the first child of the other nodes, such as the condition of an if or a while
+        default -> namedChild = node.childCount() > 0 ? node.child(0) : null;
+      }
+    } finally {
+      naming = false;
+    }
+  }
+
+  // the parameters of a function NameAnalyzer checks are checked as it does, against its globals
+  @Override
+  protected boolean declareParameters(FunDef fd, Scope outer) {
+    if (namedChild != fd.block) {
+      return super.declareParameters(fd, outer);
+    }
+    naming = true;
+    try {
+      return checkParameters(fd, outer, currentScope, true);
+    } finally {
+      naming = false;
+    }
+  }
+
+  @Override
+  protected void print(String line) {
+    (naming ? namedLines : typedLines).append(line).append(System.lineSeparator());
+  }
+
+  /*
+   * The global scope as TypeAnalyzer sees it, with the scope NameAnalyzer sees in named. While a
+   * node is name checked, the global declarations and lookups are those of named.
+   */
+  private final class Globals extends Scope {
+    private final Scope named = new Scope();
+
+    @Override
+    public Symbol lookupCurrent(String name) {
+      return naming ? named.lookupCurrent(name) : super.lookupCurrent(name);
+    }
+
+    @Override
+    public void put(Symbol sym) {
+      if (naming) {
+        named.put(sym);
+      } else {
+        super.put(sym);
+      }
+    }
+
+    @Override
+    public void trackDeclaration(String name) {
+      if (naming) {
+        named.trackDeclaration(name);
+      } else {
+        super.trackDeclaration(name);
+      }
+    }
+  }
+}
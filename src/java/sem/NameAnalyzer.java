@@ -14,30 +14,6 @@ public class NameAnalyzer extends BaseSemanticAnalyzer {
   // Tracks the current scope during analysis
   private Scope currentScope;
 
-  // List of built-in functions that will be valid
-  /*
-  * This will be always valid
-  * void print_s(char* s);
-  * void print_i(int i);
-  * void print_c(char c);
-  * char read_c();
-  * int read_i();
-  * void* mcmalloc(int size);
-
-  */
-  private static final List<FunDecl> BUILT_IN_FUNCTIONS =
-      List.of(
-          new FunDecl(
-              BaseType.VOID, "print_s", List.of(new VarDecl(new PointerType(BaseType.CHAR), "s"))),
-          new FunDecl(BaseType.VOID, "print_i", List.of(new VarDecl(BaseType.INT, "i"))),
-          new FunDecl(BaseType.VOID, "print_c", List.of(new VarDecl(BaseType.CHAR, "c"))),
-          new FunDecl(BaseType.CHAR, "read_c", List.of()),
-          new FunDecl(BaseType.INT, "read_i", List.of()),
-          new FunDecl(
-              new PointerType(BaseType.VOID),
-              "mcmalloc",
-              List.of(new VarDecl(BaseType.INT, "size"))));
-
   public NameAnalyzer() {
     // Initialize the global scope and register built in functions in the symbol table
     this.currentScope = new Scope(null);
@@ -69,43 +45,12 @@ public class NameAnalyzer extends BaseSemanticAnalyzer {
         ClassSymbol cs = new ClassSymbol(cd.name, cd.parent);
         currentScope.put(cs);
         // add variables and methods to the class symbol
-        for (VarDecl f : cd.fields) {
-          // check if the field is already declared
-          if (cs.fields.containsKey(f.name)) {
-            error("Field override: " + f.name + " in class " + cd.name);
-          }
-          cs.addField(f.name, f.type);
-        }
-        for (FunDef m : cd.methods) {
-          Set<String> parameterseen = new HashSet<>();
-          // prvenet class method redefined
-          if (cs.methods.containsKey(m.name)) {
-            error("Method " + m.name + " is already defined in class " + cd.name);
-          }
-          for (VarDecl param : m.params) {
-            if (!parameterseen.add(param.name)) {
-              error(
-                  "Method '"
-                      + m.name
-                      + "' in class '"
-                      + cd.name
-                      + "' has duplicate parameter '"
-                      + param.name
-                      + "'.");
-            }
-          }
-          FunSymbol fm = new FunSymbol(m);
-          cs.addMethod(fm);
-        }
+        addMembers(cd, cs);
         if (cd.parent != null) {
           ClassSymbol parent = currentScope.lookupClass(cd.parent);
           // check if filed override and report an error
           if (parent != null) {
-            for (VarDecl f : cd.fields) {
-              if (parent.fields.containsKey(f.name)) {
-                error("Field override: " + f.name + " in class " + cd.name);
-              }
-            }
+            checkFieldOverrides(cd, parent);
           }
           if (parent == null) {
             // report an error if the parent class is not declared
@@ -129,7 +74,7 @@ public class NameAnalyzer extends BaseSemanticAnalyzer {
       case FunDecl fd -> {
         // Check if the function is a built-in function
         // check if built-in functions contain the function declaration
-        if (BUILT_IN_FUNCTIONS.stream().anyMatch(f -> f.name.equals(fd.name))) {
+        if (builtIn(fd.name) != null) {
           return;
         }
 
@@ -163,34 +108,10 @@ public class NameAnalyzer extends BaseSemanticAnalyzer {
             return;
           }
           // function declaration matches definition
-          if (existingSymbol.decl != null && !(existingSymbol.decl.type instanceof PointerType)) {
-
-            if (!fd.type.equals(existingSymbol.decl.type)) {
-              error(
-                  "Function "
-                      + fd.name
-                      + " definition does not match declaration: Return types do not match.");
-              return;
-            }
-
-            if (fd.params.size() != existingSymbol.decl.params.size()) {
-              error(
-                  "Function "
-                      + fd.name
-                      + " definition does not match declaration: Parameter count does not match.");
-              return;
-            }
-            // check if the parameters match
-            for (int i = 0; i < fd.params.size(); i++) {
-              if (!fd.params.get(i).type.equals(existingSymbol.decl.params.get(i).type)
-                  && !(existingSymbol.decl.params.get(i).type instanceof PointerType)) {
-                error(
-                    "Function "
-                        + fd.name
-                        + " definition does not match declaration: Parameter types do not match.");
-                return;
-              }
-            }
+          String mismatch = declarationMismatch(fd, existingSymbol.decl);
+          if (mismatch != null) {
+            error("Function " + fd.name + " definition does not match declaration: " + mismatch);
+            return;
           }
 
           // Link the definition to the previously declared function
@@ -201,27 +122,9 @@ public class NameAnalyzer extends BaseSemanticAnalyzer {
         Scope oldScope = currentScope;
         currentScope = new Scope(oldScope);
 
-        // Track already declared parameters to detect duplicates
-        Set<String> declaredParams = new HashSet<>();
-
-        for (VarDecl param : fd.params) {
-          // Ensure parameter does not shadow a global variable
-          if (oldScope.lookupVariable(param.name) != null) {
-            System.out.println(
-                "Shadowing detected: Function parameter '"
-                    + param.name
-                    + "' shadows a global variable.");
-          }
-
-          // Ensure parameter is not already declared in the function local scope
-          if (declaredParams.contains(param.name)) {
-            error("Function parameter '" + param.name + "' is already declared in this function.");
-            return;
-          }
-          declaredParams.add(param.name);
-
-          // Insert parameter into local scope
-          currentScope.put(new VarSymbol(param));
+        // Insert the parameters into the local scope, noting those that shadow a global variable
+        if (!checkParameters(fd, oldScope, currentScope, true)) {
+          return;
         }
 
         // visit function body to check for undeclared parameter usage
@@ -306,18 +209,9 @@ public class NameAnalyzer extends BaseSemanticAnalyzer {
       // Variable declaration
       case VarDecl vd -> {
         // System.out.println("Declaring variable: " + vd.name);
-        if (currentScope.lookupCurrent(vd.name) != null
-            && currentScope.lookupVariable(vd.name) != null) {
-          VarSymbol vs = currentScope.lookupVariable(vd.name);
-          if (vs.vd.type.equals(vd.type)) {
-            error("Variable " + vd.name + " is already declared with a same type.");
-            return;
-          }
-        }
-
-        // if the variable is shadowed in the current scope
-        if (currentScope.isShadowed(vd.name)) {
-          System.out.println("shadowing detected: " + vd.name);
+        // no variable of the same name and type in the scope, a shadowed one is noted
+        if (!checkRedeclaration(currentScope, vd, true)) {
+          return;
         }
         // put the variable in the current scope
         currentScope.put(new VarSymbol(vd));
@@ -329,7 +223,7 @@ public class NameAnalyzer extends BaseSemanticAnalyzer {
         // check if the variable is declared in the current scope
         VarSymbol vs = currentScope.lookupVariable(v.name);
         if (v.name.equals("NULL")) {
-          v.vd = new VarDecl(new PointerType(BaseType.VOID), "NULL");
+          v.vd = new VarDecl(Types.basePointer(BaseType.VOID), "NULL");
           return;
         }
         if (vs == null) {
@@ -353,14 +247,7 @@ public class NameAnalyzer extends BaseSemanticAnalyzer {
         // register the struct before function processing
         currentScope.put(new StructSymbol(std));
         // validate field names within the struct
-        Set<String> fieldNames = new HashSet<>();
-        for (VarDecl field : std.fields) {
-          if (fieldNames.contains(field.name)) {
-            error("Duplicate field '" + field.name + "' in struct " + std.structType.name);
-            return;
-          }
-          fieldNames.add(field.name);
-        }
+        checkFieldNames(std);
       }
 
       // expression statements
@@ -387,8 +274,8 @@ public class NameAnalyzer extends BaseSemanticAnalyzer {
 
       // defualt case
       default -> {
-        if (!node.children().isEmpty()) {
-          visit(node.children().get(0));
+        if (node.childCount() > 0) {
+          visit(node.child(0));
         }
       }
     }
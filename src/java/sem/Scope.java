@@ -3,29 +3,45 @@ package sem;
 import java.util.*;
 
 /** Scope class handles symbol table management and supports nested scopes. */
-public class Scope {
+public class Scope implements EnclosingScope {
   // Reference to the outer scope null for global scope
-  private Scope outer;
+  private EnclosingScope outer;
   // Stores declared symbols in the current scope
   private Map<String, Symbol> symbolTable;
   // Tracks the order of symbol declarations for scoping checks
   private List<String> orderedDeclarations;
+  // Position of the first declaration of each name, for order checks without scanning the list.
+  // Filled in from orderedDeclarations when a check needs it, so declaring stays a list append.
+  private Map<String, Integer> firstDeclaration;
+  private int indexedDeclarations;
+  // Position of the first declaration of each name declared after a prefix was taken, so that the
+  // prefix does not see it. Names declared before are visible in every prefix.
+  private Map<String, Integer> declaredAfterPrefix;
+  // Symbols replaced by a later declaration of their name, by the position of that declaration.
+  // Kept once a prefix has been taken, so that the prefix still finds the replaced symbol.
+  private Map<String, TreeMap<Integer, Symbol>> replaced;
 
   /** nested scope linked to an outer scope. */
   public Scope(Scope outer) {
+    this((EnclosingScope) outer);
+  }
+
+  // nested scope in a scope or in a prefix of one
+  Scope(EnclosingScope outer) {
     this.outer = outer;
     this.symbolTable = new HashMap<>();
     this.orderedDeclarations = new ArrayList<>();
+    this.firstDeclaration = new HashMap<>();
   }
 
   // constructor for the global scope
   public Scope() {
-    this(null);
+    this((EnclosingScope) null);
   }
 
   /** looks up a symbol in the current and enclosing scopes. */
   public Symbol lookup(String name) {
-    Symbol sym = symbolTable.get(name);
+    Symbol sym = lookupCurrent(name);
     if (sym != null) {
       return sym;
     } else if (outer != null) {
@@ -40,16 +56,55 @@ public class Scope {
     return symbolTable.get(name);
   }
 
+  @Override
+  public EnclosingScope outer() {
+    return outer;
+  }
+
+  // a read-only view of this scope as it is now, see ScopePrefix
+  ScopePrefix prefix() {
+    if (replaced == null) {
+      replaced = new HashMap<>();
+      declaredAfterPrefix = new HashMap<>();
+    }
+    // keep the index up to date from now on, so that reading a prefix does not update it
+    declarationIndex();
+    return new ScopePrefix(this, orderedDeclarations.size());
+  }
+
+  // the symbol of name after the first limit declarations of this scope
+  Symbol lookupBefore(String name, int limit) {
+    Symbol sym = symbolTable.get(name);
+    Integer declared = declaredAfterPrefix.get(name);
+    if (sym == null || (declared != null && declared >= limit)) {
+      return null;
+    }
+    TreeMap<Integer, Symbol> history = replaced.isEmpty() ? null : replaced.get(name);
+    Map.Entry<Integer, Symbol> later = history == null ? null : history.ceilingEntry(limit);
+    return later != null ? later.getValue() : sym;
+  }
+
   /** adds a new symbol to the current scope and ensures that a duplicate declaration does not */
   public void put(Symbol sym) {
-    symbolTable.put(sym.name, sym);
-    // Track the order of declarations
-    orderedDeclarations.add(sym.name);
+    Symbol previous = symbolTable.put(sym.name, sym);
+    if (replaced != null) {
+      int position = orderedDeclarations.size();
+      if (previous != null) {
+        replaced.computeIfAbsent(sym.name, k -> new TreeMap<>()).put(position, previous);
+      } else {
+        declaredAfterPrefix.put(sym.name, position);
+      }
+    }
+    trackDeclaration(sym.name);
   }
 
   // tracks a new declaration explicitly for debugging and ensuring correct order.
   public void trackDeclaration(String name) {
+    // Track the order of declarations
     orderedDeclarations.add(name);
+    if (replaced != null) {
+      declarationIndex();
+    }
   }
 
   /**
@@ -58,7 +113,7 @@ public class Scope {
    */
   public boolean isDeclaredBeforeUse(String name) {
     // check if the name is declared in the current scope
-    if (orderedDeclarations.contains(name)) {
+    if (firstIndex(name) >= 0) {
       return true;
     }
 
@@ -77,13 +132,13 @@ public class Scope {
    * outer scopes.
    */
   public boolean isShadowed(String name) {
-    Scope outerScope = this.outer;
+    EnclosingScope outerScope = this.outer;
 
     while (outerScope != null) {
       if (outerScope.lookupCurrent(name) != null) {
         return true;
       }
-      outerScope = outerScope.outer;
+      outerScope = outerScope.outer();
     }
     return false;
   }
@@ -123,7 +178,29 @@ public class Scope {
   /** checks if a variable was declared before another reference for scoping validation */
   public boolean isDeclaredBefore(String name, String reference) {
     // check if the name is declared before the reference
-    return orderedDeclarations.indexOf(name) < orderedDeclarations.indexOf(reference);
+    // a name that was never declared is at position -1, as indexOf would have it
+    return firstIndex(name) < firstIndex(reference);
+  }
+
+  // whether name is among the first limit declarations of this scope
+  boolean isDeclaredWithin(String name, int limit) {
+    int index = firstIndex(name);
+    return index >= 0 && index < limit;
+  }
+
+  // position of the first declaration of name, -1 if there is none
+  private int firstIndex(String name) {
+    return declarationIndex().getOrDefault(name, -1);
+  }
+
+  // brings firstDeclaration up to date with the declarations added since the last check
+  private Map<String, Integer> declarationIndex() {
+    while (indexedDeclarations < orderedDeclarations.size()) {
+      firstDeclaration.putIfAbsent(
+          orderedDeclarations.get(indexedDeclarations), indexedDeclarations);
+      indexedDeclarations++;
+    }
+    return firstDeclaration;
   }
 
   /** lookup struct declarations in the current and parent scopes */
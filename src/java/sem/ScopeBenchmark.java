@@ -0,0 +1,108 @@
+package sem;
+
+import ast.BaseType;
+import ast.Program;
+import ast.VarDecl;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import parser.Parser;
+
+/**
+ * Times the symbol table on a program with many globals: declaring them in one {@link Scope}, then
+ * checking each one with {@link Scope#isDeclaredBeforeUse} and {@link Scope#isDeclaredBefore}
+ * against the previous one, from a nested scope as a function body would, and again from a scope
+ * nested in a prefix of the globals, as the parallel {@link TypeAnalyzer} nests them. The whole
+ * semantic analysis of a generated program that declares the globals and uses each one is timed
+ * too.
+ *
+ * <p>Usage: java -cp bin sem.ScopeBenchmark [globals]
+ *
+ * <p>globals defaults to 50000. Times are the best of several runs.
+ */
+public class ScopeBenchmark {
+
+  private static final int RUNS = 5;
+
+  public static void main(String[] args) {
+    int globals = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+    String[] names = new String[globals];
+    VarDecl[] decls = new VarDecl[globals];
+    for (int i = 0; i < globals; i++) {
+      names[i] = "g" + i;
+      decls[i] = new VarDecl(BaseType.INT, names[i]);
+    }
+
+    long declare = Long.MAX_VALUE;
+    long check = Long.MAX_VALUE;
+    long prefixCheck = Long.MAX_VALUE;
+    int found = 0;
+    int prefixFound = 0;
+    for (int r = 0; r < RUNS; r++) {
+      long t0 = System.nanoTime();
+      Scope global = new Scope();
+      for (VarDecl vd : decls) global.put(new VarSymbol(vd));
+      long t1 = System.nanoTime();
+      Scope body = new Scope(global);
+      found = 0;
+      for (int i = 0; i < globals; i++) {
+        if (body.isDeclaredBeforeUse(names[i])) found++;
+        if (i > 0 && global.isDeclaredBefore(names[i - 1], names[i])) found++;
+      }
+      long t2 = System.nanoTime();
+      Scope prefixBody = new Scope(global.prefix());
+      prefixFound = 0;
+      for (int i = 0; i < globals; i++) {
+        if (prefixBody.isDeclaredBeforeUse(names[i])) prefixFound++;
+      }
+      long t3 = System.nanoTime();
+      declare = Math.min(declare, t1 - t0);
+      check = Math.min(check, t2 - t1);
+      prefixCheck = Math.min(prefixCheck, t3 - t2);
+    }
+    System.out.println(globals + " globals");
+    System.out.println("declare: " + declare / 1000000 + " ms");
+    System.out.println("check declared before use: " + check / 1000000 + " ms (" + found + " true)");
+    System.out.println(
+        "check declared before use in a prefix: " + prefixCheck / 1000000 + " ms (" + prefixFound
+            + " true)");
+
+    StringBuilder text = new StringBuilder();
+    for (String name : names) text.append("int ").append(name).append(";\n");
+    text.append("int main() {\n  int sum;\n  sum = 0;\n");
+    for (String name : names) text.append("  sum = sum + ").append(name).append(";\n");
+    text.append("  return sum;\n}\n");
+    Program program = parse(text.toString());
+
+    long analyze = Long.MAX_VALUE;
+    int errors = 0;
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    try {
+      for (int r = 0; r < RUNS; r++) {
+        SemanticAnalyzer analyzer = new SemanticAnalyzer();
+        long t0 = System.nanoTime();
+        analyzer.analyze(program);
+        analyze = Math.min(analyze, System.nanoTime() - t0);
+        errors = analyzer.getNumErrors();
+      }
+    } finally {
+      System.setOut(out);
+    }
+    System.out.println(
+        "semantic analysis of " + text.length() + " characters: " + analyze / 1000000 + " ms ("
+            + errors + " errors)");
+  }
+
+  // parsing messages are not printed, the generated program has none
+  private static Program parse(String text) {
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    try {
+      return new Parser(new Tokeniser(new Scanner(text))).parse();
+    } finally {
+      System.setOut(out);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package sem;
+
+/**
+ * A read-only view of a {@link Scope} as it was when {@link Scope#prefix()} was called:
+ * declarations added to the scope later are not visible in it, and a symbol that a later
+ * declaration replaced is still found. Scopes can be nested in it as in the scope itself. Once the
+ * scope stops changing, its prefixes can be read from several threads, as the parallel {@link
+ * TypeAnalyzer} does with the global scope.
+ */
+final class ScopePrefix implements EnclosingScope {
+  // the scope shown, and how many of its declarations are visible
+  private final Scope source;
+  private final int limit;
+
+  ScopePrefix(Scope source, int limit) {
+    this.source = source;
+    this.limit = limit;
+  }
+
+  @Override
+  public Symbol lookup(String name) {
+    Symbol sym = lookupCurrent(name);
+    if (sym != null) {
+      return sym;
+    }
+    EnclosingScope outer = outer();
+    return outer == null ? null : outer.lookup(name);
+  }
+
+  @Override
+  public Symbol lookupCurrent(String name) {
+    return source.lookupBefore(name, limit);
+  }
+
+  @Override
+  public boolean isDeclaredBeforeUse(String name) {
+    // the same checks as Scope.isDeclaredBeforeUse, on the visible declarations only
+    if (source.isDeclaredWithin(name, limit)) {
+      return true;
+    }
+    if (lookup(name) instanceof FunSymbol fs) {
+      return fs.decl != null || fs.def != null;
+    }
+    EnclosingScope outer = outer();
+    return outer != null && outer.isDeclaredBeforeUse(name);
+  }
+
+  @Override
+  public EnclosingScope outer() {
+    return source.outer();
+  }
+}
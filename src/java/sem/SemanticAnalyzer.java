@@ -1,18 +1,108 @@
 package sem;
 
+import ast.ASTWalker;
+import ast.Expr;
+import ast.FieldAccessExpr;
+import ast.FunCallExpr;
+import ast.Program;
+import ast.VarExpr;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
 import util.CompilerPass;
 
 public class SemanticAnalyzer extends CompilerPass {
-	
+
+	/**
+	 * FUSED, the default, runs the {@link FusedAnalyzer}; on a program it finds errors in, it runs
+	 * the two passes instead, which report them. TWO_PASS runs the {@link NameAnalyzer}, then the
+	 * {@link TypeAnalyzer}. TWO_PASS_PARALLEL does the same, with the TypeAnalyzer checking the
+	 * bodies of functions and methods in parallel on the common fork-join pool. CROSS_CHECK runs
+	 * the fused pass silently, then TWO_PASS, and adds an error if the fused pass finds errors in a
+	 * program the two passes find none in, or the reverse, or if on a program without errors it
+	 * prints other lines or annotates an expression differently.
+	 */
+	public enum Mode { FUSED, TWO_PASS, TWO_PASS_PARALLEL, CROSS_CHECK }
+
+	private final Mode mode;
+
+	public SemanticAnalyzer() {
+		this(Mode.FUSED);
+	}
+
+	public SemanticAnalyzer(Mode mode) {
+		this.mode = mode;
+	}
+
 	public void analyze(ast.Program prog) {
+		switch (mode) {
+			case FUSED -> this.numErrors += fused(prog, System.out);
+			case TWO_PASS -> this.numErrors += twoPass(prog, new TypeAnalyzer(), System.out);
+			case TWO_PASS_PARALLEL -> this.numErrors +=
+					twoPass(prog, new TypeAnalyzer(ForkJoinPool.commonPool()), System.out);
+			case CROSS_CHECK -> {
+				// the fused pass runs first, silently, on the AST as parsed
+				FusedAnalyzer fa = walk(prog);
+				CrossCheck.Run fused = new CrossCheck.Run(
+						fa.lines(), fa.getNumErrors(), CrossCheck.annotations(prog, true));
+
+				ByteArrayOutputStream printed = new ByteArrayOutputStream();
+				int errors = twoPass(prog, new TypeAnalyzer(), new PrintStream(printed));
+				System.out.print(printed);
+				this.numErrors += errors;
+				CrossCheck.Run twoPass = new CrossCheck.Run(
+						printed.toString(), errors, CrossCheck.annotations(prog, false));
+				String difference = CrossCheck.difference(twoPass, fused, false);
+				if (difference != null) {
+					System.out.println("semantic cross-check: " + difference);
+					incError();
+				}
+			}
+		}
+	}
+
+	private static FusedAnalyzer walk(Program prog) {
+		FusedAnalyzer fa = new FusedAnalyzer();
+		try {
+			fa.visit(prog);
+		} catch (RuntimeException e) {
+			// past its first error, the type check may fail on what it did not expect
+			if (fa.getNumErrors() == 0) throw e;
+		}
+		return fa;
+	}
+
+	private static int fused(Program prog, PrintStream output) {
+		FusedAnalyzer fa = walk(prog);
+		if (fa.getNumErrors() == 0) {
+			output.print(fa.lines());
+			return 0;
+		}
+		// past its first error the fused pass reports differently, the two passes start again
+		new ASTWalker().walk(prog, node -> {
+			if (node instanceof Expr e) clear(e);
+			return true;
+		});
+		return twoPass(prog, new TypeAnalyzer(), output);
+	}
 
+	private static int twoPass(Program prog, TypeAnalyzer tc, PrintStream output) {
 		NameAnalyzer na = new NameAnalyzer();
+		na.setOutput(output);
 		na.visit(prog);
-		this.numErrors += na.getNumErrors();
-
-		TypeAnalyzer tc = new TypeAnalyzer();
+		tc.setOutput(output);
 		tc.visit(prog);
-		this.numErrors += tc.getNumErrors();
-		// To complete
+		return na.getNumErrors() + tc.getNumErrors();
+	}
+
+	// removes the type and the bindings the analysis stored in e
+	static void clear(Expr e) {
+		e.type = null;
+		if (e instanceof VarExpr v) v.vd = null;
+		if (e instanceof FieldAccessExpr fa) fa.fieldDecl = null;
+		if (e instanceof FunCallExpr fc) {
+			fc.decl = null;
+			fc.def = null;
+		}
 	}
 }
@@ -0,0 +1,83 @@
+package sem;
+
+import ast.Program;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import parser.Parser;
+
+/**
+ * Checks on each file that parses that the FUSED and CROSS_CHECK modes of the {@link
+ * SemanticAnalyzer} print the same lines, find as many errors and leave the same types and bindings
+ * in the AST as the two passes: the fused pass must find errors exactly where the two passes do and
+ * otherwise do what they do. With -parallel, checks instead that the two passes with the parallel
+ * TypeAnalyzer do what the sequential ones do.
+ *
+ * <p>Usage: java -cp bin sem.SemanticCheck [-parallel] file.c...
+ *
+ * <p>Exits with 1 if a file is analysed differently.
+ */
+public class SemanticCheck {
+  private static final List<SemanticAnalyzer.Mode> FUSED =
+      List.of(SemanticAnalyzer.Mode.FUSED, SemanticAnalyzer.Mode.CROSS_CHECK);
+  private static final List<SemanticAnalyzer.Mode> PARALLEL =
+      List.of(SemanticAnalyzer.Mode.TWO_PASS_PARALLEL);
+
+  public static void main(String[] args) throws IOException {
+    boolean parallel = args.length > 0 && args[0].equals("-parallel");
+    if (args.length == (parallel ? 1 : 0)) {
+      System.out.println("Usage: java -cp bin sem.SemanticCheck [-parallel] file.c...");
+      System.exit(-1);
+    }
+    int failed = 0;
+    PrintStream out = System.out;
+    for (String name : List.of(args).subList(parallel ? 1 : 0, args.length)) {
+      ByteArrayOutputStream messages = new ByteArrayOutputStream();
+      System.setOut(new PrintStream(messages));
+      String result;
+      try {
+        Tokeniser tokeniser = new Tokeniser(new Scanner(new File(name)));
+        Parser parser = new Parser(tokeniser);
+        Program program = parser.parse();
+        if (tokeniser.hasErrors() || parser.hasErrors()) {
+          result = "skipped, parsing errors";
+        } else {
+          CrossCheck.Run expected = run(program, SemanticAnalyzer.Mode.TWO_PASS);
+          result = "agree";
+          for (SemanticAnalyzer.Mode mode : parallel ? PARALLEL : FUSED) {
+            String difference = CrossCheck.difference(expected, run(program, mode), true);
+            if (difference != null) {
+              result = "semantic cross-check: " + mode + " " + difference;
+              break;
+            }
+          }
+        }
+      } finally {
+        System.setOut(out);
+      }
+      if (result.startsWith("semantic cross-check: ")) failed++;
+      System.out.println(name + ": " + result);
+    }
+    System.out.println(failed == 0 ? "Cross-check: pass" : "Cross-check: " + failed + " failed");
+    if (failed > 0) System.exit(1);
+  }
+
+  // what mode printed and found on prog, and the annotations it left in the AST, then cleared
+  private static CrossCheck.Run run(Program prog, SemanticAnalyzer.Mode mode) {
+    PrintStream out = System.out;
+    ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(printed));
+    SemanticAnalyzer analyzer = new SemanticAnalyzer(mode);
+    try {
+      analyzer.analyze(prog);
+    } finally {
+      System.setOut(out);
+    }
+    return new CrossCheck.Run(
+        printed.toString(), analyzer.getNumErrors(), CrossCheck.annotations(prog, true));
+  }
+}
@@ -7,15 +7,18 @@ import java.util.Map;
 public class StructSymbol extends Symbol {
   public StructTypeDecl std;
   private final Map<String, Type> fieldTypes;
+  private final Map<String, VarDecl> fields;
 
   public StructSymbol(StructTypeDecl std) {
     super(std.structType.name);
     this.std = std;
     this.fieldTypes = new HashMap<>();
+    this.fields = new HashMap<>();
 
     // Store field names & types
     for (VarDecl field : std.fields) {
       fieldTypes.put(field.name, field.type);
+      fields.put(field.name, field);
     }
   }
 
@@ -23,4 +26,9 @@ public class StructSymbol extends Symbol {
   public Type getFieldType(String name) {
     return fieldTypes.get(name);
   }
+
+  // Get the declaration of a field
+  public VarDecl getField(String name) {
+    return fields.get(name);
+  }
 }
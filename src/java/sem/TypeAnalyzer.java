@@ -2,31 +2,38 @@ package sem;
 
 import ast.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class TypeAnalyzer extends BaseSemanticAnalyzer {
   // current scope
-  private Scope currentScope;
+  protected Scope currentScope;
   // current function return type
   private Type currentFunctionReturnType;
   // loop depth
   private int loopDepth = 0;
   // declared structs
-  private Set<String> declaredStructs = new HashSet<>();
-  // built-in functions
-  private static final List<FunDecl> BUILT_IN_FUNCTIONS =
-      List.of(
-          new FunDecl(
-              BaseType.VOID, "print_s", List.of(new VarDecl(new PointerType(BaseType.CHAR), "s"))),
-          new FunDecl(BaseType.VOID, "print_i", List.of(new VarDecl(BaseType.INT, "i"))),
-          new FunDecl(BaseType.VOID, "print_c", List.of(new VarDecl(BaseType.CHAR, "c"))),
-          new FunDecl(BaseType.CHAR, "read_c", List.of()),
-          new FunDecl(BaseType.INT, "read_i", List.of()),
-          new FunDecl(
-              new PointerType(BaseType.VOID),
-              "mcmalloc",
-              List.of(new VarDecl(BaseType.INT, "size"))));
+  protected Set<String> declaredStructs = new HashSet<>();
+  // when not null, the bodies of functions and methods are checked on this pool
+  private final ForkJoinPool pool;
+  // the bodies left for the pool, while the declarations of a program are checked
+  private List<Body> bodies;
+  // the lines printed since the last body left for the pool, or by a body checked on the pool
+  private StringBuilder lines;
+  // declaredStructs as it was when the last body was left for the pool
+  private Set<String> structsSnapshot;
 
   public TypeAnalyzer() {
+    this(null);
+  }
+
+  /*
+   * Same as above, but once the declarations and signatures have been checked, the bodies of the
+   * functions and methods are checked in parallel on the pool. The errors and what is printed are
+   * the same as when checking sequentially, in the same order.
+   */
+  public TypeAnalyzer(ForkJoinPool pool) {
+    this.pool = pool;
     // create a new scope
     this.currentScope = new Scope();
     // add built-in functions to the scope
@@ -36,6 +43,16 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
     }
   }
 
+  // checks one body on the pool, against the globals and structs declared before it
+  private TypeAnalyzer(ScopePrefix globals, Set<String> declaredStructs, Types types) {
+    this.pool = null;
+    this.types = types;
+    // the body's scopes are nested in the read-only globals, which nothing declares into
+    this.currentScope = new Scope(globals);
+    this.declaredStructs = declaredStructs;
+    this.lines = new StringBuilder();
+  }
+
   public Type visit(ASTNode node) {
     return switch (node) {
       case null -> throw new IllegalStateException("Unexpected null value");
@@ -43,6 +60,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
       // Program ::= (Decl)*
       // Decl ::= StructTypeDecl | VarDecl | FunDecl | FunDef
       case Program p -> {
+        types = p.types;
         // Register every class so that class names exist in the scope
         for (ASTNode decl : p.decls) {
           if (decl instanceof ClassDecl cd) {
@@ -51,6 +69,10 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
             currentScope.put(cs);
           }
         }
+        if (pool != null) {
+          checkInParallel(p.decls);
+          yield BaseType.NONE;
+        }
         for (ASTNode decl : p.decls) {
           visit(decl);
         }
@@ -61,7 +83,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
         ClassSymbol cs = currentScope.lookupClass(cd.name);
         // add fields in the class scope
         for (VarDecl f : cd.fields) {
-          cs.addField(f.name, f.type);
+          cs.addField(f);
         }
         // add methods in the class scope
         for (FunDef m : cd.methods) {
@@ -77,17 +99,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
           } else {
             cs.parent = parent;
             // override checking checking overridden method matches signature
-            for (FunDef m : cd.methods) {
-              // bring in the method from the parent class
-              FunSymbol superMethod = parent.getMethod(m.name);
-              if (superMethod != null) {
-                // check if the method is overridden correctly
-                if (!superMethod.getParamTypes().equals(m.getParamTypes())
-                    || !superMethod.type.equals(m.type)) {
-                  error("Method override mismatch: " + m.name + " in class " + cd.name);
-                }
-              }
-            }
+            checkMethodOverrides(cd, parent);
           }
         }
         // type check each field
@@ -129,25 +141,16 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
           // if the function is not built-in, add it to the scope
           currentScope.put(new FunSymbol(fd));
         }
-        // save the old scope
-        Scope oldScope = currentScope;
-        // create a new scope
-        currentScope = new Scope(oldScope);
-        // Set<String> declaredParams = new HashSet<>();
-        // add the function parameters to the scope
-        for (VarDecl param : fd.params) {
-          Type paramType = param.type;
-          // put the parameter in the current scope
-          currentScope.put(new VarSymbol(new VarDecl(paramType, param.name)));
-        }
-        // set the current function return type
-        currentFunctionReturnType = fd.type;
-        // visit the function block
-        visit(fd.block);
-        // reset the current function return type
-        currentFunctionReturnType = null;
-        // restore the old scope
-        currentScope = oldScope;
+        if (bodies != null) {
+          // checked on the pool, the lines printed so far come before those of the body
+          if (structsSnapshot == null || structsSnapshot.size() != declaredStructs.size()) {
+            structsSnapshot = Set.copyOf(declaredStructs);
+          }
+          bodies.add(new Body(fd, currentScope.prefix(), structsSnapshot, lines));
+          lines = new StringBuilder();
+        } else {
+          checkBody(fd);
+        }
         // return the function type
         yield fd.type;
       }
@@ -192,12 +195,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
       // add ⟨ v: T ⟩ to Γ
 
       case VarDecl vd -> {
-        if (vd.type.equals(BaseType.VOID)) {
-          error("Variable '" + vd.name + "' cannot be of type void.");
-          yield BaseType.UNKNOWN;
-        }
-        if (vd.type instanceof StructType st && !declaredStructs.contains(st.name)) {
-          error("Struct '" + st.name + "' is not declared.");
+        if (!checkVariableType(vd)) {
           yield BaseType.UNKNOWN;
         }
         currentScope.put(new VarSymbol(vd));
@@ -213,8 +211,8 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
         // lookup the variable in the current scope
         VarSymbol varSymbol = currentScope.lookupVariable(v.name);
         if (v.name.equals("NULL")) {
-          v.vd = new VarDecl(new PointerType(BaseType.VOID), "NULL");
-          v.type = new PointerType(BaseType.VOID);
+          v.vd = new VarDecl(Types.basePointer(BaseType.VOID), "NULL");
+          v.type = Types.basePointer(BaseType.VOID);
           yield v.type;
         }
         // if the variable is not declared, return an error
@@ -278,8 +276,9 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
                 if (leftArray.elementType instanceof ArrayType leftInner
                     && rightArray.elementType instanceof ArrayType rightInner) {
 
-                  // Check if the inner arrays rows have the same type
-                  if (!leftInner.elementType.equals(rightInner.elementType)) {
+                  // Check if the inner arrays rows have the same type, types are interned
+                  // (ast.Types) so the same type is the same object
+                  if (leftInner.elementType != rightInner.elementType) {
                     error("2D Array element type mismatch.");
                     yield BaseType.UNKNOWN;
                   }
@@ -290,7 +289,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
                     yield BaseType.UNKNOWN;
                   }
 
-                } else if (!leftArray.elementType.equals(rightArray.elementType)) {
+                } else if (leftArray.elementType != rightArray.elementType) {
                   error("Array element type mismatch.");
                   yield BaseType.UNKNOWN;
                 }
@@ -313,7 +312,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
             right = visit(a.right);
             // must be class type
             if (right instanceof ClassType rightClass) {
-              if (leftClass.name.equals(rightClass.name)) {
+              if (leftClass == rightClass) {
                 // same type
                 a.type = leftClass;
                 yield leftClass;
@@ -357,9 +356,11 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
       case Block b -> {
         // save the old scope
         Scope oldScope = currentScope;
+        // the declarations of the block are not visible after it
+        currentScope = new Scope(oldScope);
         // visit the block statements
-        for (ASTNode stmt : b.children()) {
-          visit(stmt);
+        for (int i = 0; i < b.childCount(); i++) {
+          visit(b.child(i));
         }
         // restore the old scope
         currentScope = oldScope;
@@ -458,7 +459,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
 
           if (currentFunctionReturnType instanceof StructType expectedStruct
               && returnType instanceof StructType actualStruct) {
-            if (!expectedStruct.name.equals(actualStruct.name)) {
+            if (expectedStruct != actualStruct) {
               error(
                   "Return statement type mismatch: expected "
                       + expectedStruct.name
@@ -467,7 +468,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
               yield BaseType.UNKNOWN;
             }
           } // and not pointer type
-          else if (!currentFunctionReturnType.equals(returnType)
+          else if (currentFunctionReturnType != returnType
               && !(currentFunctionReturnType instanceof PointerType)
               && !(returnType instanceof PointerType)) {
             error(
@@ -487,7 +488,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
       case ChrLiteral c -> c.type = BaseType.CHAR;
       // string literal
       case StrLiteral s -> {
-        s.type = new ArrayType(BaseType.CHAR, List.of(s.value.length() + 1), s.value.length() + 1);
+        s.type = types.array(BaseType.CHAR, List.of(s.value.length() + 1), s.value.length() + 1);
         yield s.type;
       }
 
@@ -511,13 +512,9 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
         // if the function is not declared and is a built-in function, return the built-in function
         // type if it exists
         if (funSymbol == null) {
-          FunDecl builtInFunction =
-              BUILT_IN_FUNCTIONS.stream()
-                  .filter(fd -> fd.name.equals(f.name))
-                  .findFirst()
-                  .orElse(null);
+          FunDecl builtInFunction = builtIn(f.name);
           if (builtInFunction != null) {
-            System.out.println("return value " + builtInFunction.type);
+            print("return value " + builtInFunction.type);
             yield builtInFunction.type;
           }
         }
@@ -536,81 +533,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
         }
 
         // check the type of each argument
-        for (int i = 0; i < f.args.size(); i++) {
-          Type expected = expectedParams.get(i);
-          Type actual = visit(f.args.get(i));
-          // check if int and char mismatch arguments
-
-          if (expected.equals(BaseType.INT) && actual.equals(BaseType.CHAR)) {
-            error("Implicit conversion from 'char' to 'int' is not allowed.");
-            yield BaseType.UNKNOWN;
-          }
-
-          switch (expected) {
-            case BaseType bt -> {
-              if (bt.equals(BaseType.VOID)) {
-                error("Function argument cannot be of type void.");
-                yield BaseType.UNKNOWN;
-              }
-            }
-            case ArrayType expectedArray -> {
-              if (actual instanceof ArrayType actualArray) {
-                // Handle 2D array case
-                if (expectedArray.elementType instanceof ArrayType expectedInner
-                    && actualArray.elementType instanceof ArrayType actualInner) {
-
-                  // Check inner array types
-                  if (!expectedInner.elementType.equals(actualInner.elementType)) {
-                    error("Function argument 2D array type mismatch.");
-                    yield BaseType.UNKNOWN;
-                  }
-                  // Check inner array sizes
-                  if (expectedInner.getDimensionSize(i) != actualInner.getDimensionSize(i)) {
-                    error("Function argument 2D array row size mismatch.");
-                    yield BaseType.UNKNOWN;
-                  }
-                } else if (!expectedArray.elementType.equals(actualArray.elementType)) {
-                  error("Function argument array element type mismatch.");
-                  yield BaseType.UNKNOWN;
-                }
-                // Check top level sizes
-                if (expectedArray.getDimensionSize(i) != actualArray.getDimensionSize(i)) {
-                  error("Function argument array size mismatch.");
-                  yield BaseType.UNKNOWN;
-                }
-              } else {
-                // error("Function argument type mismatch: Expected array but got " + actual);
-                yield BaseType.UNKNOWN;
-              }
-            }
-            case StructType expectedStruct -> {
-              if (actual instanceof StructType actualStruct) {
-                if (!expectedStruct.name.equals(actualStruct.name)) {
-                  error("Function argument struct type mismatch.");
-                  yield BaseType.UNKNOWN;
-                }
-              } else {
-                error("Function argument type mismatch: Expected struct but got " + actual);
-                yield BaseType.UNKNOWN;
-              }
-            }
-            case ClassType expectedClass -> {
-              if (actual instanceof ClassType actualClass) {
-                if (!expectedClass.name.equals(actualClass.name)) {
-                  error("Function argument class type mismatch.");
-                  yield BaseType.UNKNOWN;
-                }
-              } else {
-                error("Function argument type mismatch: Expected class but got " + actual);
-                yield BaseType.UNKNOWN;
-              }
-            }
-
-            default -> {}
-          }
-        }
-
-        yield funSymbol.def != null ? funSymbol.def.type : funSymbol.decl.type;
+        yield checkArguments(f, funSymbol);
       }
       case ArrayAccessExpr a -> {
         Type t = visit(a.array);
@@ -655,7 +578,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
         // type the first N indices
         List<Integer> rem = new ArrayList<>(dims);
         for (int i = 0; i < a.indices.size(); i++) rem.remove(0);
-        a.type = rem.isEmpty() ? leaf : new ArrayType(leaf, rem, 0);
+        a.type = rem.isEmpty() ? leaf : types.array(leaf, rem, 0);
         yield a.type;
       }
 
@@ -679,6 +602,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
             error("Class " + ct.name + " has no field " + fa.field);
             yield BaseType.UNKNOWN;
           }
+          fa.fieldDecl = cls.getFieldDecl(fa.field);
           fa.type = fld;
           yield fld;
         }
@@ -700,6 +624,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
           yield BaseType.UNKNOWN;
         }
 
+        fa.fieldDecl = structSymbol.getField(fa.field);
         fa.type = fieldType;
         fa.structure.type = structType;
 
@@ -707,20 +632,9 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
         yield fieldType;
       }
       case InstanceFunCallExpr ifc -> {
-        Type rcv = visit(ifc.target);
-        if (!(rcv instanceof ClassType ct)) {
-          error("Method call on non class type.");
-          yield BaseType.UNKNOWN;
-        }
-        ClassSymbol cls = currentScope.lookupClass(ct.name);
-        if (cls == null) {
-          error("Unknown class: " + ct.name);
-          yield BaseType.UNKNOWN;
-        }
         // look up the method
-        FunSymbol fs = cls.getMethod(ifc.call.name);
+        FunSymbol fs = resolveMethod(ifc);
         if (fs == null) {
-          error("Class " + ct.name + " has no method " + ifc.call.name);
           yield BaseType.UNKNOWN;
         }
         Type ret = visit(ifc.call);
@@ -745,7 +659,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
         }
 
         if (tc.type instanceof PointerType pt && exprType instanceof ArrayType at) {
-          yield new PointerType(at.elementType);
+          yield types.pointer(at.elementType);
         }
         // class cast subclass to  ancestor
         if (tc.type instanceof ClassType target && exprType instanceof ClassType source) {
@@ -793,7 +707,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
           error("Pointer to void is not allowed.");
           yield BaseType.UNKNOWN;
         }
-        yield new PointerType(baseType);
+        yield types.pointer(baseType);
       }
       // address of expression
       case AddressOfExpr ao -> {
@@ -803,7 +717,7 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
           error("Address of operator on non-lvalue.");
           yield BaseType.UNKNOWN;
         }
-        yield new PointerType(expr);
+        yield types.pointer(expr);
       }
       // sizeof expression
       case SizeOfExpr so -> {
@@ -847,13 +761,214 @@ public class TypeAnalyzer extends BaseSemanticAnalyzer {
           yield BaseType.UNKNOWN;
         }
         // assign the class type to the new instance
-        ni.type = new ClassType(ni.className);
+        ni.type = types.classType(ni.className);
         yield ni.type;
       }
       default -> BaseType.UNKNOWN;
     };
   }
 
+  // checks the body of a function or method in a scope of its parameters
+  protected void checkBody(FunDef fd) {
+    // save the old scope
+    Scope oldScope = currentScope;
+    // create a new scope
+    currentScope = new Scope(oldScope);
+    // add the function parameters to the scope
+    if (declareParameters(fd, oldScope)) {
+      // set the current function return type
+      currentFunctionReturnType = fd.type;
+      // visit the function block
+      visit(fd.block);
+      // reset the current function return type
+      currentFunctionReturnType = null;
+    }
+    // restore the old scope
+    currentScope = oldScope;
+  }
+
+  // puts the parameters of fd in the current scope, false if its body is not to be checked
+  protected boolean declareParameters(FunDef fd, Scope outer) {
+    for (VarDecl param : fd.params) {
+      // put the parameter in the current scope, uses are bound to its declaration
+      currentScope.put(new VarSymbol(param));
+    }
+    return true;
+  }
+
+  // reports a variable of type void or of an undeclared struct type, false if vd is one
+  protected boolean checkVariableType(VarDecl vd) {
+    if (vd.type.equals(BaseType.VOID)) {
+      error("Variable '" + vd.name + "' cannot be of type void.");
+      return false;
+    }
+    if (vd.type instanceof StructType st && !declaredStructs.contains(st.name)) {
+      error("Struct '" + st.name + "' is not declared.");
+      return false;
+    }
+    return true;
+  }
+
+  // type checks the arguments of a call to fs, whose argument count is right, returns its type
+  protected Type checkArguments(FunCallExpr f, FunSymbol fs) {
+    List<Type> expectedParams =
+        fs.def != null ? fs.def.getParamTypes() : fs.decl.getParamTypes();
+    for (int i = 0; i < f.args.size(); i++) {
+      Type expected = expectedParams.get(i);
+      Type actual = visit(f.args.get(i));
+      // check if int and char mismatch arguments
+
+      if (expected.equals(BaseType.INT) && actual.equals(BaseType.CHAR)) {
+        error("Implicit conversion from 'char' to 'int' is not allowed.");
+        return BaseType.UNKNOWN;
+      }
+
+      switch (expected) {
+        case BaseType bt -> {
+          if (bt.equals(BaseType.VOID)) {
+            error("Function argument cannot be of type void.");
+            return BaseType.UNKNOWN;
+          }
+        }
+        case ArrayType expectedArray -> {
+          if (actual instanceof ArrayType actualArray) {
+            // Handle 2D array case
+            if (expectedArray.elementType instanceof ArrayType expectedInner
+                && actualArray.elementType instanceof ArrayType actualInner) {
+
+              // Check inner array types
+              if (expectedInner.elementType != actualInner.elementType) {
+                error("Function argument 2D array type mismatch.");
+                return BaseType.UNKNOWN;
+              }
+              // Check inner array sizes
+              if (expectedInner.getDimensionSize(i) != actualInner.getDimensionSize(i)) {
+                error("Function argument 2D array row size mismatch.");
+                return BaseType.UNKNOWN;
+              }
+            } else if (expectedArray.elementType != actualArray.elementType) {
+              error("Function argument array element type mismatch.");
+              return BaseType.UNKNOWN;
+            }
+            // Check top level sizes
+            if (expectedArray.getDimensionSize(i) != actualArray.getDimensionSize(i)) {
+              error("Function argument array size mismatch.");
+              return BaseType.UNKNOWN;
+            }
+          } else {
+            // error("Function argument type mismatch: Expected array but got " + actual);
+            return BaseType.UNKNOWN;
+          }
+        }
+        case StructType expectedStruct -> {
+          if (actual instanceof StructType actualStruct) {
+            if (expectedStruct != actualStruct) {
+              error("Function argument struct type mismatch.");
+              return BaseType.UNKNOWN;
+            }
+          } else {
+            error("Function argument type mismatch: Expected struct but got " + actual);
+            return BaseType.UNKNOWN;
+          }
+        }
+        case ClassType expectedClass -> {
+          if (actual instanceof ClassType actualClass) {
+            if (expectedClass != actualClass) {
+              error("Function argument class type mismatch.");
+              return BaseType.UNKNOWN;
+            }
+          } else {
+            error("Function argument type mismatch: Expected class but got " + actual);
+            return BaseType.UNKNOWN;
+          }
+        }
+
+        default -> {}
+      }
+    }
+
+    return fs.def != null ? fs.def.type : fs.decl.type;
+  }
+
+  // the method an instance call resolves to, null once the receiver or method is reported
+  protected FunSymbol resolveMethod(InstanceFunCallExpr ifc) {
+    Type rcv = visit(ifc.target);
+    if (!(rcv instanceof ClassType ct)) {
+      error("Method call on non class type.");
+      return null;
+    }
+    ClassSymbol cls = currentScope.lookupClass(ct.name);
+    if (cls == null) {
+      error("Unknown class: " + ct.name);
+      return null;
+    }
+    FunSymbol fs = cls.getMethod(ifc.call.name);
+    if (fs == null) {
+      error("Class " + ct.name + " has no method " + ifc.call.name);
+      return null;
+    }
+    return fs;
+  }
+
+  // a body left for the pool, with what it may see and the lines printed before it
+  private record Body(FunDef fd, ScopePrefix globals, Set<String> structs, StringBuilder before) {}
+
+  /*
+   * Checks the declarations in order, leaving each body for the pool with a prefix of the global
+   * scope and the structs declared so far, so that it sees what a sequential check would see.
+   * Classes are only complete once their declaration has been checked, so the bodies before the
+   * last class declaration are checked in order. The bodies are then checked in parallel, and the
+   * lines of the declarations and of the bodies are printed in source order.
+   */
+  private void checkInParallel(List<Decl> decls) {
+    int lastClass = -1;
+    for (int i = 0; i < decls.size(); i++) {
+      if (decls.get(i) instanceof ClassDecl) lastClass = i;
+    }
+    List<Body> pending = new ArrayList<>();
+    lines = new StringBuilder();
+    for (int i = 0; i < decls.size(); i++) {
+      bodies = i >= lastClass ? pending : null;
+      visit(decls.get(i));
+    }
+    bodies = null;
+    StringBuilder after = lines;
+    lines = null;
+
+    // a few consecutive bodies per task, enough tasks to balance the load
+    int groups = Math.min(pending.size(), pool.getParallelism() * 4);
+    List<ForkJoinTask<List<TypeAnalyzer>>> tasks = new ArrayList<>();
+    for (int g = 0; g < groups; g++) {
+      List<Body> group =
+          pending.subList(g * pending.size() / groups, (g + 1) * pending.size() / groups);
+      tasks.add(pool.submit(() -> group.stream().map(this::check).toList()));
+    }
+    int next = 0;
+    for (ForkJoinTask<List<TypeAnalyzer>> task : tasks) {
+      for (TypeAnalyzer checker : task.join()) {
+        output().print(pending.get(next++).before());
+        output().print(checker.lines);
+        numErrors += checker.getNumErrors();
+      }
+    }
+    output().print(after);
+  }
+
+  private TypeAnalyzer check(Body body) {
+    TypeAnalyzer checker = new TypeAnalyzer(body.globals(), body.structs(), types);
+    checker.checkBody(body.fd());
+    return checker;
+  }
+
+  @Override
+  protected void print(String line) {
+    if (lines == null) {
+      super.print(line);
+    } else {
+      lines.append(line).append(System.lineSeparator());
+    }
+  }
+
   // check if the node is an lvalue
   private boolean isLValue(ASTNode node) {
     return switch (node) {
@@ -0,0 +1,139 @@
+package sem;
+
+import ast.Program;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import lexer.Scanner;
+import lexer.Tokeniser;
+import parser.Parser;
+
+/**
+ * Times the {@link TypeAnalyzer} on large programs, checking the bodies of functions sequentially,
+ * then in parallel on a worker pool of 1, 2, 4... threads up to the number of available
+ * processors. What the parallel check prints is compared with what the sequential one prints.
+ *
+ * <p>Usage: java -cp bin sem.TypeAnalyzerBenchmark [dir] [copies]
+ *
+ * <p>The first program is built like the one of parser.ParserBenchmark: the .c files of dir
+ * (default tests/test/test_parser) that parse without errors, without their #include lines,
+ * repeated copies times (default 200). The second is generated: copies * 25 functions over a few
+ * globals and a struct. Times are the best of several runs.
+ */
+public class TypeAnalyzerBenchmark {
+
+  private static final int RUNS = 10;
+
+  public static void main(String[] args) throws IOException {
+    File dir = new File(args.length > 0 ? args[0] : "tests/test/test_parser");
+    int copies = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".c"));
+    if (files == null) {
+      System.out.println("Not a directory: " + dir);
+      System.exit(-1);
+    }
+    Arrays.sort(files);
+
+    StringBuilder corpus = new StringBuilder();
+    for (File f : files) {
+      String text = new String(Files.readAllBytes(f.toPath()), Charset.defaultCharset());
+      if (parse(text) != null) {
+        corpus.append(text.replaceAll("(?m)^#include.*$", "")).append('\n');
+      }
+    }
+    String input = corpus.toString().repeat(copies);
+    System.out.println("corpus, " + copies + " copies, " + input.length() + " characters");
+    measure(parse(input));
+
+    String generated = functions(copies * 25);
+    System.out.println("generated functions, " + generated.length() + " characters");
+    measure(parse(generated));
+  }
+
+  private static void measure(Program program) {
+    PrintStream out = System.out;
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    long best = Long.MAX_VALUE;
+    int errors = 0;
+    for (int r = 0; r < RUNS; r++) {
+      expected.reset();
+      System.setOut(new PrintStream(expected));
+      TypeAnalyzer analyzer = new TypeAnalyzer();
+      long t0 = System.nanoTime();
+      try {
+        analyzer.visit(program);
+      } finally {
+        System.setOut(out);
+      }
+      best = Math.min(best, System.nanoTime() - t0);
+      errors = analyzer.getNumErrors();
+    }
+    System.out.println("  sequential: " + best / 1000000 + " ms (" + errors + " errors)");
+
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads <= maxThreads; threads *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      ByteArrayOutputStream printed = new ByteArrayOutputStream();
+      long parallel = Long.MAX_VALUE;
+      boolean same = true;
+      try {
+        for (int r = 0; r < RUNS; r++) {
+          printed.reset();
+          System.setOut(new PrintStream(printed));
+          TypeAnalyzer analyzer = new TypeAnalyzer(pool);
+          long t0 = System.nanoTime();
+          try {
+            analyzer.visit(program);
+          } finally {
+            System.setOut(out);
+          }
+          parallel = Math.min(parallel, System.nanoTime() - t0);
+          same &= analyzer.getNumErrors() == errors;
+          same &= printed.toString().equals(expected.toString());
+        }
+      } finally {
+        pool.shutdown();
+      }
+      System.out.printf(
+          "  parallel, %d threads: %d ms (%.2fx)%s%n",
+          threads, parallel / 1000000, (double) best / parallel, same ? "" : ", OUTPUT DIFFERS");
+    }
+  }
+
+  // functions using globals, a struct, arrays and calls, always the same for a given number
+  private static String functions(int count) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("struct point { int x; int y; char tag; };\n");
+    sb.append("int total;\nchar names[8][16];\nstruct point origin;\n");
+    for (int f = 0; f < count; f++) {
+      sb.append("int f").append(f).append("(int a, struct point* p) {\n");
+      sb.append("  int i;\n  int s[10];\n  i = 0;\n");
+      sb.append("  while (i < 10) {\n    s[i] = a * i + (*p).x - origin.y;\n");
+      sb.append("    if (names[i % 8][0] == 'a') { total = total + s[i]; }\n");
+      sb.append("    i = i + 1;\n  }\n");
+      if (f > 0) sb.append("  total = total + f").append(f - 1).append("(s[a % 10], p);\n");
+      sb.append("  return total + (*p).y;\n}\n");
+    }
+    return sb.toString();
+  }
+
+  // the program of text, or null if it has lexing or parsing errors (which are not printed)
+  private static Program parse(String text) {
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    try {
+      Tokeniser tokeniser = new Tokeniser(new Scanner(text));
+      Parser parser = new Parser(tokeniser);
+      Program program = parser.parse();
+      return tokeniser.hasErrors() || parser.hasErrors() ? null : program;
+    } finally {
+      System.setOut(out);
+    }
+  }
+}
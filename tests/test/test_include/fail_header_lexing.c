@@ -0,0 +1,6 @@
+#include "inc_bad_lexing.h"
+#include "inc_bad_lexing.h"
+
+int main() {
+  return 0;
+}
@@ -0,0 +1,5 @@
+#include "inc_missing.h"
+
+int main() {
+  return 0;
+}
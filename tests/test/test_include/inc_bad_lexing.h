@@ -0,0 +1,2 @@
+int bad$(int x);
+char garbage = @@@@;
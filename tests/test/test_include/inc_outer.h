@@ -0,0 +1,3 @@
+#include "inc_inner.h"
+
+int outer(int x);
@@ -0,0 +1,6 @@
+#include "inc_outer.h"
+#include "inc_inner.h"
+
+int main() {
+  return outer(inner(1));
+}
@@ -0,0 +1,10 @@
+// the innermost element types of a 3D array argument must match the parameter's
+int first(int m[2][3][4]) {
+    return 0;
+}
+
+int main() {
+    char a[2][3][4];
+    first(a);
+    return 0;
+}
@@ -0,0 +1,16 @@
+// a 3D array can be passed to a parameter of the same type
+int first(int m[2][3][4]) {
+    return 0;
+}
+
+int rows(char m[5][6]) {
+    return 0;
+}
+
+int main() {
+    int a[2][3][4];
+    char b[5][6];
+    first(a);
+    rows(b);
+    return 0;
+}